@@ -1,6 +1,7 @@
 package com.github.sergdelft.sqlcorgi;
 
 import com.github.sergdelft.sqlcorgi.util.AggregateComponentFactory;
+import com.github.sergdelft.sqlcorgi.util.cloner.LeafInterner;
 import com.github.sergdelft.sqlcorgi.util.cloner.SelectCloner;
 import net.sf.jsqlparser.expression.BinaryExpression;
 import net.sf.jsqlparser.expression.Expression;
@@ -21,6 +22,25 @@ import java.util.Set;
  */
 public class AggregateFunctionsGenerator {
 
+    private final LeafInterner leaves;
+
+    /**
+     * Creates a generator that interns the leaves of its rules by itself.
+     */
+    public AggregateFunctionsGenerator() {
+        this(new LeafInterner());
+    }
+
+    /**
+     * Creates a generator that interns the leaves of its rules with the given interner, so that they are shared with
+     * the other rules of the same query.
+     *
+     * @param leaves the interner of the leaves of the rules.
+     */
+    public AggregateFunctionsGenerator(LeafInterner leaves) {
+        this.leaves = leaves;
+    }
+
     /**
      * Main method that generates the rules for the aggregate functions.
      *
@@ -30,6 +50,20 @@ public class AggregateFunctionsGenerator {
     public Set<String> generate(PlainSelect plainSelect) {
 
         Set<String> outputAfterAggregator = new HashSet<>();
+        RuleSink output = outputAfterAggregator::add;
+        generate(plainSelect, output);
+
+        return outputAfterAggregator;
+    }
+
+    /**
+     * Generates the rules for the aggregate functions and passes each rule to {@code output} as soon as it has been
+     * generated.
+     *
+     * @param plainSelect the query to generate rules for.
+     * @param output the sink to which the generated rules are passed.
+     */
+    public void generate(PlainSelect plainSelect, StructuredRuleSink output) {
 
         for (SelectItem selectItem : plainSelect.getSelectItems()) {
             if (selectItem instanceof SelectExpressionItem) {
@@ -40,25 +74,23 @@ public class AggregateFunctionsGenerator {
 
                     if (func.isAllColumns()) {
                         if (plainSelect.getGroupBy() != null) {
-                            outputAfterAggregator.add(firstRule(plainSelect).toString());
-                            outputAfterAggregator.add(secondRule(plainSelect).toString());
+                            emit(output, firstRule(plainSelect));
+                            emit(output, secondRule(plainSelect));
                         }
                     } else if (plainSelect.getGroupBy() != null) {
-                        outputAfterAggregator.add(firstRule(plainSelect).toString());
-                        outputAfterAggregator.add(secondRule(plainSelect).toString());
-                        outputAfterAggregator.add(thirdRule(plainSelect, func).toString());
-                        outputAfterAggregator.add(fourthRule(plainSelect, func).toString());
+                        emit(output, firstRule(plainSelect));
+                        emit(output, secondRule(plainSelect));
+                        emit(output, thirdRule(plainSelect, func));
+                        emit(output, fourthRule(plainSelect, func));
                     } else {
                         if (!AggregateComponentFactory.COUNT_STRING.equals(func.getName().toUpperCase())) {
-                            outputAfterAggregator.add(thirdRule(plainSelect, func).toString());
+                            emit(output, thirdRule(plainSelect, func));
                         }
-                        outputAfterAggregator.add(fourthRule(plainSelect, func).toString());
+                        emit(output, fourthRule(plainSelect, func));
                     }
                 }
             }
         }
-
-        return outputAfterAggregator;
     }
 
     /**
@@ -76,7 +108,7 @@ public class AggregateFunctionsGenerator {
         plainSelectOut.setGroupByElement(null);
 
         SelectExpressionItem selectExpressionItem = new SelectExpressionItem(
-            AggregateComponentFactory.createCountAllColumns()
+            AggregateComponentFactory.createCountAllColumns(leaves)
         );
 
         List<SelectItem> selectItemList = new ArrayList<>();
@@ -87,7 +119,7 @@ public class AggregateFunctionsGenerator {
         Expression groupBy = plainSelect.getGroupBy().getGroupByExpressions().get(0);
         Function countColumn = AggregateComponentFactory.createCountColumn(groupBy, true);
 
-        GreaterThan greaterThan = AggregateComponentFactory.createGreaterThanOne(countColumn);
+        GreaterThan greaterThan = AggregateComponentFactory.createGreaterThanOne(countColumn, leaves);
         plainSelectOut.setHaving(greaterThan);
 
         return plainSelectOut;
@@ -104,8 +136,8 @@ public class AggregateFunctionsGenerator {
 
         PlainSelect plainSelectOut = (PlainSelect) SelectCloner.copy(plainSelect);
 
-        Function count = AggregateComponentFactory.createCountAllColumns();
-        GreaterThan greaterThan = AggregateComponentFactory.createGreaterThanOne(count);
+        Function count = AggregateComponentFactory.createCountAllColumns(leaves);
+        GreaterThan greaterThan = AggregateComponentFactory.createGreaterThanOne(count, leaves);
         plainSelectOut.setHaving(greaterThan);
 
         return plainSelectOut;
@@ -122,7 +154,7 @@ public class AggregateFunctionsGenerator {
 
         PlainSelect plainSelectOut = (PlainSelect) SelectCloner.copy(plainSelect);
 
-        Function count = AggregateComponentFactory.createCountAllColumns();
+        Function count = AggregateComponentFactory.createCountAllColumns(leaves);
         Expression expr = function.getParameters().getExpressions().get(0);
 
         GreaterThan leftGreaterThan = new GreaterThan();
@@ -130,7 +162,7 @@ public class AggregateFunctionsGenerator {
         leftGreaterThan.setRightExpression(AggregateComponentFactory.createCountColumn(expr, false));
 
         GreaterThan rightGreaterThan = AggregateComponentFactory.createGreaterThanOne(
-                AggregateComponentFactory.createCountColumn(expr, true)
+                AggregateComponentFactory.createCountColumn(expr, true), leaves
         );
 
         BinaryExpression binaryExpression = new AndExpression(leftGreaterThan, rightGreaterThan);
@@ -157,7 +189,7 @@ public class AggregateFunctionsGenerator {
         leftGreaterThan.setRightExpression(AggregateComponentFactory.createCountColumn(expr, true));
 
         GreaterThan rightGreaterThan = AggregateComponentFactory.createGreaterThanOne(
-            AggregateComponentFactory.createCountColumn(expr, true)
+            AggregateComponentFactory.createCountColumn(expr, true), leaves
         );
 
         BinaryExpression binaryExpression = new AndExpression(leftGreaterThan, rightGreaterThan);
@@ -166,4 +198,14 @@ public class AggregateFunctionsGenerator {
 
         return plainSelectOut;
     }
+
+    /**
+     * Passes the given rule for the aggregate functions to {@code output}. The rule targets its HAVING clause.
+     *
+     * @param output the sink to which the rule is passed.
+     * @param rule the query that makes up the rule.
+     */
+    private static void emit(StructuredRuleSink output, PlainSelect rule) {
+        output.accept(new Rule(rule, Phase.AGGREGATES, rule.getHaving()));
+    }
 }
@@ -0,0 +1,16 @@
+package com.github.sergdelft.sqlcorgi;
+
+/**
+ * Unwinds a rule generation run whose {@link GenerationBudget} has been exhausted. The exception never escapes from
+ * the {@link CoverageEngine}, which catches it and returns the rules generated so far. Since it is only used for
+ * control flow, it does not record a stack trace.
+ */
+final class BudgetExceededException extends RuntimeException {
+
+    /**
+     * Creates the exception.
+     */
+    BudgetExceededException() {
+        super("The generation budget has been exceeded.", null, false, false);
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.sergdelft.sqlcorgi;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The amount of copying that the phases of rule generation have done, as reported by
+ * {@link com.github.sergdelft.sqlcorgi.util.cloner.CloneCounters}. For each {@link Phase}, the statistics hold the
+ * number of syntax tree nodes that the phase copied, and the number of bytes that it allocated. The bytes include all
+ * allocations of the phase, not only its copies, and are only counted if
+ * {@link GenerationOptions#isCountingAllocatedBytes()} is set; otherwise they are 0.
+ * Copying that a phase does while covering a subquery is attributed to the phase that covers the subquery, not to
+ * {@link Phase#SUBQUERIES}, so the phases never count the same copy twice.
+ * <p>
+ * The statistics of a single query are available from its {@link GenerationResult}, and a {@link CoverageEngine}
+ * adds up the statistics of all queries it generates rules for. All methods are thread-safe.
+ */
+public final class CloneStatistics {
+
+    private static final int PHASES = Phase.values().length;
+
+    private final AtomicLongArray clonedNodes = new AtomicLongArray(PHASES);
+    private final AtomicLongArray allocatedBytes = new AtomicLongArray(PHASES);
+
+    /**
+     * Records the copying done by a phase.
+     *
+     * @param phase the phase that did the copying.
+     * @param nodes the number of nodes that were copied.
+     * @param bytes the number of bytes that the phase allocated.
+     */
+    void record(Phase phase, long nodes, long bytes) {
+        clonedNodes.addAndGet(phase.ordinal(), nodes);
+        allocatedBytes.addAndGet(phase.ordinal(), bytes);
+    }
+
+    /**
+     * Adds the copying recorded by the given statistics to these statistics.
+     *
+     * @param statistics the statistics to add.
+     */
+    void add(CloneStatistics statistics) {
+        for (Phase phase : Phase.values()) {
+            record(phase, statistics.getClonedNodes(phase), statistics.getAllocatedBytes(phase));
+        }
+    }
+
+    public long getClonedNodes(Phase phase) {
+        return clonedNodes.get(phase.ordinal());
+    }
+
+    public long getAllocatedBytes(Phase phase) {
+        return allocatedBytes.get(phase.ordinal());
+    }
+
+    /**
+     * Returns the number of nodes that all phases together have copied.
+     *
+     * @return the total number of copied nodes.
+     */
+    public long getTotalClonedNodes() {
+        long total = 0;
+        for (int i = 0; i < PHASES; i++) {
+            total += clonedNodes.get(i);
+        }
+
+        return total;
+    }
+
+    /**
+     * Returns the number of bytes that all phases together have allocated, including, but not limited to, their copies.
+     *
+     * @return the total number of allocated bytes, or 0 if allocated bytes are not counted.
+     */
+    public long getTotalAllocatedBytes() {
+        long total = 0;
+        for (int i = 0; i < PHASES; i++) {
+            total += allocatedBytes.get(i);
+        }
+
+        return total;
+    }
+
+    /**
+     * Resets all counters to zero.
+     */
+    public void reset() {
+        for (int i = 0; i < PHASES; i++) {
+            clonedNodes.set(i, 0);
+            allocatedBytes.set(i, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("CloneStatistics{");
+        for (Phase phase : Phase.values()) {
+            if (phase.ordinal() > 0) {
+                builder.append(", ");
+            }
+            builder.append(phase).append('=').append(getClonedNodes(phase)).append(" nodes/")
+                .append(getAllocatedBytes(phase)).append(" B");
+        }
+
+        return builder.append('}').toString();
+    }
+}
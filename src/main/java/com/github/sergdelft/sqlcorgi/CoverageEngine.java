@@ -0,0 +1,811 @@
+package com.github.sergdelft.sqlcorgi;
+
+import com.github.sergdelft.sqlcorgi.exceptions.CannotBeNullException;
+import com.github.sergdelft.sqlcorgi.exceptions.CannotBeParsedException;
+import com.github.sergdelft.sqlcorgi.exceptions.ParseLimitExceededException;
+import com.github.sergdelft.sqlcorgi.exceptions.UnsupportedInputException;
+import com.github.sergdelft.sqlcorgi.query.QueryFingerprint;
+import com.github.sergdelft.sqlcorgi.query.QueryTemplate;
+import com.github.sergdelft.sqlcorgi.schema.Schema;
+import com.github.sergdelft.sqlcorgi.schema.SchemaIndex;
+import com.github.sergdelft.sqlcorgi.schema.TableStructure;
+import com.github.sergdelft.sqlcorgi.util.FingerprintSet;
+import com.github.sergdelft.sqlcorgi.util.Parsers;
+import com.github.sergdelft.sqlcorgi.util.Queries;
+import com.github.sergdelft.sqlcorgi.visitors.SelectStatementVisitor;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.SelectBody;
+import net.sf.jsqlparser.util.deparser.SelectDeParser;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Generates coverage rules for queries against a single {@link Schema}. The lookup indexes for the schema are built
+ * once, when the engine is created, so that each query only pays for its own rule generation. An engine holds no
+ * per-query state and can be shared by any number of threads.
+ * <p>
+ * An engine can optionally be backed by a {@link RuleCache}, in which case the rule sets returned by
+ * {@link #generateRules(String)} are cached, and by a {@link ParseCache}, in which case the queries it parses are
+ * cached. The schema must not be modified after the engine has been created.
+ */
+public final class CoverageEngine {
+
+    private static final String NULL_INPUT_MESSAGE = "Input cannot be null.";
+    private static final String NULL_BUDGET_MESSAGE = "The budget cannot be null.";
+    private static final String PARSE_ERROR_MESSAGE = "Input query could not be parsed.";
+
+    private final Schema schema;
+    private final SchemaIndex schemaIndex;
+    private final RuleCache cache;
+    private final ParseCache parseCache;
+    private final ParseLimits parseLimits;
+    private final GenerationOptions options;
+    private volatile Long cacheFingerprint;
+    private final CloneStatistics cloneStatistics = new CloneStatistics();
+
+    /**
+     * Creates an engine for the given schema, without a cache.
+     *
+     * @param schema the database schema. If it is null, all attributes are assumed to not be nullable.
+     */
+    public CoverageEngine(Schema schema) {
+        this(schema, null);
+    }
+
+    /**
+     * Creates an engine for the given schema, which caches the generated rule sets in the given cache.
+     *
+     * @param schema the database schema. If it is null, all attributes are assumed to not be nullable.
+     * @param cache the cache to use, which may be shared with other engines, or {@code null} to disable caching.
+     */
+    public CoverageEngine(Schema schema, RuleCache cache) {
+        this(schema, cache, GenerationOptions.ALL);
+    }
+
+    /**
+     * Creates an engine for the given schema that only runs the phases enabled by {@code options}, and caches the
+     * generated rule sets in the given cache. Rule sets generated with different options are cached separately.
+     *
+     * @param schema the database schema. If it is null, all attributes are assumed to not be nullable.
+     * @param cache the cache to use, which may be shared with other engines, or {@code null} to disable caching.
+     * @param options the phases to run. It must not be null.
+     */
+    public CoverageEngine(Schema schema, RuleCache cache, GenerationOptions options) {
+        this(schema, cache, options, null);
+    }
+
+    /**
+     * Creates an engine for the given schema that only runs the phases enabled by {@code options}, caches the
+     * generated rule sets in the given cache, and caches the parsed queries in the given parse cache. Since parsed
+     * queries do not depend on the schema, sharing a parse cache between engines for different versions of a schema
+     * saves parsing the same queries again after the schema has changed.
+     *
+     * @param schema the database schema. If it is null, all attributes are assumed to not be nullable.
+     * @param cache the cache to use, which may be shared with other engines, or {@code null} to disable caching.
+     * @param options the phases to run. It must not be null.
+     * @param parseCache the parse cache to use, which may be shared with other engines, or {@code null} to parse every
+     *                   query that is not served from {@code cache}.
+     */
+    public CoverageEngine(Schema schema, RuleCache cache, GenerationOptions options, ParseCache parseCache) {
+        this(schema, cache, options, parseCache, ParseLimits.UNLIMITED);
+    }
+
+    /**
+     * Creates an engine for the given schema that only runs the phases enabled by {@code options}, caches the
+     * generated rule sets and parsed queries in the given caches, and rejects queries that exceed the given parse
+     * limits before, or while, parsing them.
+     *
+     * @param schema the database schema. If it is null, all attributes are assumed to not be nullable.
+     * @param cache the cache to use, which may be shared with other engines, or {@code null} to disable caching.
+     * @param options the phases to run. It must not be null.
+     * @param parseCache the parse cache to use, which may be shared with other engines, or {@code null} to parse every
+     *                   query that is not served from {@code cache}.
+     * @param parseLimits the limits on the queries that are parsed. It must not be null.
+     */
+    public CoverageEngine(Schema schema, RuleCache cache, GenerationOptions options, ParseCache parseCache,
+                          ParseLimits parseLimits) {
+        this(schema, cache, options, parseCache, parseLimits, true);
+    }
+
+    /**
+     * Creates an engine that either indexes the given schema up front, or looks up tables and columns by scanning the
+     * schema.
+     *
+     * @param schema the database schema. If it is null, all attributes are assumed to not be nullable.
+     * @param cache the cache to use, which may be shared with other engines, or {@code null} to disable caching.
+     * @param options the phases to run. It must not be null.
+     * @param parseCache the parse cache to use, or {@code null} to parse every query that is not served from
+     *                   {@code cache}.
+     * @param parseLimits the limits on the queries that are parsed. It must not be null.
+     * @param indexed whether the schema is indexed.
+     */
+    private CoverageEngine(Schema schema, RuleCache cache, GenerationOptions options, ParseCache parseCache,
+                           ParseLimits parseLimits, boolean indexed) {
+        if (options == null) {
+            throw new CannotBeNullException("The generation options cannot be null.");
+        }
+
+        if (parseLimits == null) {
+            throw new CannotBeNullException("The parse limits cannot be null.");
+        }
+
+        this.schema = schema;
+        this.schemaIndex = schema == null || !indexed ? null : new SchemaIndex(schema);
+        this.cache = cache;
+        this.parseCache = parseCache;
+        this.parseLimits = parseLimits;
+        this.options = options;
+    }
+
+    /**
+     * Creates an engine that is used for a single query, as by the static methods of {@link SQLCorgi}. Indexing the
+     * schema only pays off over many queries, so the engine looks up tables and columns by scanning the schema
+     * instead, like a {@link TableStructure} without an index does.
+     *
+     * @param schema the database schema. If it is null, all attributes are assumed to not be nullable.
+     * @param cache the cache to use, or {@code null} to disable caching.
+     * @return the engine.
+     */
+    static CoverageEngine forSingleQuery(Schema schema, RuleCache cache) {
+        return new CoverageEngine(schema, cache, GenerationOptions.ALL, null, ParseLimits.UNLIMITED, false);
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    public RuleCache getCache() {
+        return cache;
+    }
+
+    public ParseCache getParseCache() {
+        return parseCache;
+    }
+
+    public ParseLimits getParseLimits() {
+        return parseLimits;
+    }
+
+    public GenerationOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Returns how much copying each phase has done, added up over all queries this engine has generated rules for.
+     *
+     * @return the clone statistics of the engine.
+     */
+    public CloneStatistics getCloneStatistics() {
+        return cloneStatistics;
+    }
+
+    /**
+     * Generates coverage targets for the given query. If the engine has a cache, the rules are looked up in, and
+     * stored in, the cache. Queries that cannot be processed are never cached.
+     *
+     * @param query the query for which coverage rules should be generated.
+     * @return the rules that are generated for the input query.
+     */
+    public Set<String> generateRules(String query) {
+        return generateCached(query, createContext(() -> false, GenerationBudget.UNLIMITED));
+    }
+
+    /**
+     * Generates coverage targets for the given query. Each rule is passed to {@code output} as soon as it has been
+     * generated. Note that {@code output} may receive the same rule more than once. The cache of the engine, if any,
+     * is not used, since streamed rules are never held in memory all at once.
+     *
+     * @param query the query for which coverage rules should be generated.
+     * @param output the sink to which the generated rules are passed.
+     */
+    public void generateRules(String query, RuleSink output) {
+        generate(parse(query), output, createContext(() -> false, GenerationBudget.UNLIMITED));
+    }
+
+    /**
+     * Generates coverage targets for the given query in structured form. The rules are never rendered to strings, so
+     * callers that work with the syntax trees of the rules avoid both the rendering and a subsequent parse. Since
+     * structured rules are not deduplicated, the list may contain rules that render to the same string. The cache of
+     * the engine, if any, is not used.
+     *
+     * @param query the query for which coverage rules should be generated.
+     * @return the structured rules that are generated for the input query, in the order in which they were generated.
+     */
+    public List<Rule> generateStructuredRules(String query) {
+        List<Rule> result = new ArrayList<>();
+        generateStructuredRules(query, result::add);
+
+        return result;
+    }
+
+    /**
+     * Generates coverage targets for the given query in structured form. Each rule is passed to {@code output} as
+     * soon as it has been generated. The cache of the engine, if any, is not used.
+     *
+     * @param query the query for which coverage rules should be generated.
+     * @param output the consumer to which the structured rules are passed.
+     */
+    public void generateStructuredRules(String query, Consumer<Rule> output) {
+        if (output == null) {
+            throw new CannotBeNullException("The output cannot be null.");
+        }
+
+        generate(parse(query), output::accept, createContext(() -> false, GenerationBudget.UNLIMITED));
+    }
+
+    /**
+     * Generates coverage targets for the given query on the given executor. The cache of the engine, if any, is used
+     * in the same way as by {@link #generateRules(String)}.
+     * <p>
+     * Cancelling the returned future also stops the generation itself: the visitors and generators check for
+     * cancellation between their phases and before each rule they emit, and abandon their work once the future has
+     * been cancelled. If the query cannot be processed, the future completes exceptionally with the exception that
+     * would have been thrown by {@link #generateRules(String)}.
+     *
+     * @param query the query for which coverage rules should be generated.
+     * @param executor the executor on which the rules are generated.
+     * @return a future that completes with the rules that are generated for the input query.
+     */
+    // Justification: any failure must complete the future, since nothing else observes the worker thread.
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    public CompletableFuture<Set<String>> generateRulesAsync(String query, Executor executor) {
+        if (executor == null) {
+            throw new CannotBeNullException("The executor cannot be null.");
+        }
+
+        CompletableFuture<Set<String>> future = new CompletableFuture<>();
+        GenerationContext context = createContext(future::isCancelled, GenerationBudget.UNLIMITED);
+
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+
+                try {
+                    future.complete(generateCached(query, context));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * Generates coverage targets for the given query by way of its {@link QueryTemplate}. The rules are generated for
+     * the template text, in which the literals of the query have been replaced, and the literals are then bound back
+     * into the rules. Combined with a cache, the rules of all queries that only differ in their literals are generated
+     * only once. Without a cache, this method is merely slower than {@link #generateRules(String)}.
+     * <p>
+     * The result is identical to that of {@link #generateRules(String)}. If the literals of the query cannot safely be
+     * lifted, or if no rules can be generated for the template, the query is processed directly.
+     *
+     * @param query the query for which coverage rules should be generated.
+     * @return the rules that are generated for the input query.
+     */
+    // Justification: a failure for the template must be reported as the failure for the original query.
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    public Set<String> generateRulesFromTemplate(String query) {
+        QueryTemplate template = query == null ? null : QueryTemplate.lift(query);
+        if (template == null) {
+            return generateRules(query);
+        }
+
+        Set<String> templateRules;
+        try {
+            templateRules = generateRules(template.getText());
+        } catch (RuntimeException e) {
+            return generateRules(query);
+        }
+
+        return template.bind(templateRules);
+    }
+
+    /**
+     * Generates coverage targets for a prepared statement, of which the parameters are only known when it is executed.
+     * The positional parameters of the statement are numbered, and the rules are generated with the parameters kept
+     * symbolic. The returned rules can then be bound to the parameters of each execution, without generating the rules
+     * again. The rules are rendered with the boundaries that were generated for the parameters marked, so the cache of
+     * the engine, which holds plain rules, is not used.
+     *
+     * @param query the prepared statement, which may contain {@code ?} and {@code :name} parameters.
+     * @return the rules for the statement, in which the parameters are kept symbolic.
+     * @throws UnsupportedInputException if the statement mixes numbered and unnumbered positional parameters.
+     */
+    public ParameterizedRules generateParameterizedRules(String query) throws UnsupportedInputException {
+        if (query == null) {
+            throw new CannotBeNullException("The query cannot be null.");
+        }
+
+        String statement = Queries.numberParameters(query);
+        GenerationContext context = createContext(() -> false, GenerationBudget.UNLIMITED);
+        SelectDeParser deParser = ParameterizedRules.createDeParser();
+        return new ParameterizedRules(statement, generate(parse(statement), context, deParser));
+    }
+
+    /**
+     * Generates coverage targets for each of the given queries.
+     *
+     * @param queries the queries for which coverage rules should be generated.
+     * @param parallelism the number of worker threads to use. Must be at least 1.
+     * @return a result for each query, in the order in which the queries were provided.
+     * @see #generateRulesBatch(Stream, int)
+     */
+    public List<GenerationResult> generateRulesBatch(Collection<String> queries, int parallelism) {
+        return generateRulesBatch(queries, parallelism, GenerationBudget.UNLIMITED);
+    }
+
+    /**
+     * Generates coverage targets for each of the given queries, spending at most the given budget on each query.
+     *
+     * @param queries the queries for which coverage rules should be generated.
+     * @param parallelism the number of worker threads to use. Must be at least 1.
+     * @param budget the budget for each individual query.
+     * @return a result for each query, in the order in which the queries were provided.
+     * @see #generateRulesBatch(Stream, int, GenerationBudget)
+     */
+    public List<GenerationResult> generateRulesBatch(Collection<String> queries, int parallelism,
+                                                     GenerationBudget budget) {
+        if (queries == null) {
+            throw new CannotBeNullException(NULL_INPUT_MESSAGE);
+        }
+
+        return generateRulesBatch(queries.stream(), parallelism, budget);
+    }
+
+    /**
+     * Generates coverage targets for each of the given queries. The work is spread over a dedicated fork-join pool
+     * with the given parallelism.
+     * <p>
+     * A query for which no rules can be generated does not abort the batch. Instead, its result holds the exception
+     * that would have been thrown by {@link #generateRules(String)}.
+     *
+     * @param queries the queries for which coverage rules should be generated.
+     * @param parallelism the number of worker threads to use. Must be at least 1.
+     * @return a result for each query, in the encounter order of {@code queries}.
+     */
+    public List<GenerationResult> generateRulesBatch(Stream<String> queries, int parallelism) {
+        return generateRulesBatch(queries, parallelism, GenerationBudget.UNLIMITED);
+    }
+
+    /**
+     * Generates coverage targets for each of the given queries, spending at most the given budget on each query. The
+     * work is spread over a dedicated fork-join pool with the given parallelism, so that a single query that blows up
+     * cannot stall a worker for longer than its time budget.
+     * <p>
+     * A query for which no rules can be generated does not abort the batch. Instead, its result holds the exception
+     * that would have been thrown by {@link #generateRules(String)}.
+     *
+     * @param queries the queries for which coverage rules should be generated.
+     * @param parallelism the number of worker threads to use. Must be at least 1.
+     * @param budget the budget for each individual query.
+     * @return a result for each query, in the encounter order of {@code queries}.
+     */
+    public List<GenerationResult> generateRulesBatch(Stream<String> queries, int parallelism,
+                                                     GenerationBudget budget) {
+        if (queries == null) {
+            throw new CannotBeNullException(NULL_INPUT_MESSAGE);
+        }
+
+        if (budget == null) {
+            throw new CannotBeNullException(NULL_BUDGET_MESSAGE);
+        }
+
+        return runBatch(queries.map(query -> () -> toResult(query, () -> parse(query), budget)), parallelism);
+    }
+
+    /**
+     * Generates coverage targets for each SELECT statement of the given script, such as the contents of a
+     * {@code .sql} file or a migration script. Statements other than SELECT statements are skipped. The SELECT
+     * statements are processed in parallel, on a dedicated fork-join pool with the given parallelism.
+     * <p>
+     * The query of each result is the SELECT statement as rendered by the parser. Since the script is parsed as a
+     * whole, the statements are not parsed again. If the script contains a statement that cannot be parsed, the
+     * statements are parsed one by one instead, and each statement that cannot be parsed is reported as a result with
+     * {@link ErrorCode#PARSE_ERROR} and its own text as query. If the engine has {@link ParseLimits}, the statements
+     * are always parsed one by one, so that the limits apply to each statement rather than to the script as a whole. A
+     * statement for which no rules can be generated does not abort the script; instead, its result holds the exception
+     * that prevented the generation.
+     *
+     * @param script the script containing the statements for which coverage rules should be generated.
+     * @param parallelism the number of worker threads to use. Must be at least 1.
+     * @return a result for each SELECT statement of the script, in the order in which they appear in the script.
+     */
+    public List<GenerationResult> generateRulesForScript(String script, int parallelism) {
+        if (script == null) {
+            throw new CannotBeNullException(NULL_INPUT_MESSAGE);
+        }
+
+        List<Supplier<GenerationResult>> tasks = new ArrayList<>();
+        if (parseLimits.isUnlimited()) {
+            try {
+                for (Statement statement : Parsers.parseStatements(script).getStatements()) {
+                    addScriptTask(tasks, statement);
+                }
+                return runBatch(tasks.stream(), parallelism);
+            } catch (JSQLParserException e) {
+                tasks.clear();
+            }
+        }
+
+        for (String text : Queries.split(script)) {
+            addScriptTask(tasks, text);
+        }
+
+        return runBatch(tasks.stream(), parallelism);
+    }
+
+    /**
+     * Generates coverage targets for the given query, spending at most the given budget on it, and wraps them, or the
+     * exception that prevented their generation, in a {@link GenerationResult}. If the budget is exhausted, the result
+     * holds the rules generated so far and is marked as truncated.
+     * <p>
+     * The cache of the engine, if any, is only used if the budget is unlimited, since a cached rule set may exceed the
+     * budget, and a truncated rule set must not be served to queries without a budget.
+     *
+     * @param query the query for which coverage rules should be generated.
+     * @param budget the budget for the query.
+     * @return the result of the generation.
+     */
+    public GenerationResult generateResult(String query, GenerationBudget budget) {
+        if (budget == null) {
+            throw new CannotBeNullException(NULL_BUDGET_MESSAGE);
+        }
+
+        return toResult(query, () -> parse(query), budget);
+    }
+
+    /**
+     * Adds the task that covers the given statement of a script, if it is a SELECT statement.
+     *
+     * @param tasks the tasks of the script.
+     * @param statement the parsed statement.
+     */
+    private void addScriptTask(List<Supplier<GenerationResult>> tasks, Statement statement) {
+        if (statement instanceof Select) {
+            Select select = (Select) statement;
+            tasks.add(() -> toResult(select.toString(), select::getSelectBody, GenerationBudget.UNLIMITED));
+        }
+    }
+
+    /**
+     * Parses the given statement of a script and adds the task that covers it, if it is a SELECT statement. If the
+     * statement cannot be parsed, a task that reports the failure is added instead. Statements that consist of
+     * comments only are skipped.
+     *
+     * @param tasks the tasks of the script.
+     * @param text the text of the statement.
+     */
+    private void addScriptTask(List<Supplier<GenerationResult>> tasks, String text) {
+        if (QueryFingerprint.of(text).getKey().isEmpty()) {
+            return;
+        }
+
+        try {
+            addScriptTask(tasks, parseStatement(text));
+        } catch (CannotBeParsedException e) {
+            tasks.add(() -> GenerationResult.failure(text, e));
+        }
+    }
+
+    /**
+     * Runs the given tasks on a dedicated fork-join pool with the given parallelism.
+     *
+     * @param tasks the tasks, each of which generates the result for a single query. They must not throw.
+     * @param parallelism the number of worker threads to use. Must be at least 1.
+     * @return the result of each task, in the encounter order of {@code tasks}.
+     */
+    private static List<GenerationResult> runBatch(Stream<Supplier<GenerationResult>> tasks, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be at least 1, but was " + parallelism + ".");
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.submit(() -> tasks.parallel()
+                .map(Supplier::get)
+                .collect(Collectors.toList())
+            ).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the batch to complete.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The batch could not be completed.", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Generates coverage targets for a query, spending at most the given budget on it, and wraps them, or the
+     * exception that prevented their generation, in a {@link GenerationResult}.
+     *
+     * @param query the text of the query, which is used as the cache key.
+     * @param selectBody supplies the body of the parsed query.
+     * @param budget the budget for the query.
+     * @return the result of the generation.
+     */
+    // Justification: any failure for a single query must be reported in its result, not abort the whole batch.
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private GenerationResult toResult(String query, Supplier<SelectBody> selectBody, GenerationBudget budget) {
+        GenerationContext context = createContext(() -> false, budget);
+        try {
+            Set<String> rules = generateCached(query, selectBody, context);
+            if (context.isTruncated()) {
+                return GenerationResult.truncated(query, rules, context.getCloneStatistics());
+            }
+            return GenerationResult.success(query, rules, context.getCloneStatistics());
+        } catch (RuntimeException e) {
+            return GenerationResult.failure(query, e, context.getCloneStatistics());
+        }
+    }
+
+    /**
+     * Generates coverage targets for the given query as part of the given run. If the engine has a cache and the run
+     * has no budget, the rules are looked up in, and stored in, the cache. Queries that cannot be processed, and runs
+     * that are cancelled, are never cached.
+     *
+     * @param query the query for which coverage rules should be generated.
+     * @param context the context of the run.
+     * @return the rules that are generated for the input query.
+     */
+    private Set<String> generateCached(String query, GenerationContext context) {
+        return generateCached(query, () -> parse(query), context);
+    }
+
+    /**
+     * Generates coverage targets for a query as part of the given run, using the cache in the same way as
+     * {@link #generateCached(String, GenerationContext)}. The query is only parsed if it is not cached.
+     *
+     * @param query the text of the query, which is used as the cache key.
+     * @param selectBody supplies the body of the parsed query.
+     * @param context the context of the run.
+     * @return the rules that are generated for the query.
+     */
+    private Set<String> generateCached(String query, Supplier<SelectBody> selectBody, GenerationContext context) {
+        if (cache == null || query == null || !context.getBudget().isUnlimited()) {
+            return generate(selectBody.get(), context, Rule.createDeParser());
+        }
+
+        String key = QueryFingerprint.of(query).getKey();
+        Set<String> cached = cache.get(key, getCacheFingerprint());
+        if (cached != null) {
+            return new HashSet<>(cached);
+        }
+
+        Set<String> result = generate(selectBody.get(), context, Rule.createDeParser());
+        cache.put(key, getCacheFingerprint(), result);
+
+        return result;
+    }
+
+    /**
+     * Generates coverage targets for the given query as part of the given run, without consulting the cache.
+     * <p>
+     * Duplicates are recognized by the fingerprint of each rule, which is computed while the rule is rendered into a
+     * buffer that is reused for every rule. Only the rules that have not been seen before are turned into strings, so
+     * a duplicate costs neither a string nor a comparison with the rule it duplicates. Since every rule is rendered
+     * right away, the generators do not have to copy the rules they pass on.
+     *
+     * @param selectBody the body of the parsed query.
+     * @param context the context of the run.
+     * @param deParser the deparser to render the rules with.
+     * @return the rules that are generated for the query.
+     * @see FingerprintSet
+     */
+    private Set<String> generate(SelectBody selectBody, GenerationContext context, SelectDeParser deParser) {
+        Set<String> result = new HashSet<>();
+        RuleSink output = new RuleSink() {
+            private final FingerprintSet fingerprints = new FingerprintSet();
+
+            @Override
+            public void accept(String rule) {
+                if (fingerprints.add(rule)) {
+                    context.countRule();
+                    result.add(rule);
+                }
+            }
+
+            @Override
+            public void accept(Rule rule) {
+                StringBuilder buffer = deParser.getBuffer();
+                buffer.setLength(0);
+                rule.render(deParser);
+                if (fingerprints.add(buffer)) {
+                    context.countRule();
+                    result.add(buffer.toString());
+                }
+            }
+        };
+        generate(selectBody, output, context);
+
+        return result;
+    }
+
+    /**
+     * Generates coverage targets for the given query as part of the given run, and passes them to {@code output}. If
+     * the budget of the run is exhausted, generation stops and the context is marked as truncated.
+     *
+     * @param selectBody the body of the parsed query.
+     * @param output the sink to which the generated rules are passed.
+     * @param context the context of the run.
+     */
+    private void generate(SelectBody selectBody, StructuredRuleSink output, GenerationContext context) {
+        SelectStatementVisitor selectStatementVisitor =
+            new SelectStatementVisitor(createTableStructure(), output, context);
+        try {
+            selectBody.accept(selectStatementVisitor);
+        } catch (BudgetExceededException e) {
+            // The rules generated so far have already been passed to the output.
+        } finally {
+            cloneStatistics.add(context.getCloneStatistics());
+        }
+    }
+
+    /**
+     * Creates the context for a single run, which runs the phases enabled for this engine.
+     *
+     * @param cancelled the condition under which the run is cancelled.
+     * @param budget the budget of the run.
+     * @return the context of the run.
+     */
+    private GenerationContext createContext(BooleanSupplier cancelled, GenerationBudget budget) {
+        return new GenerationContext(cancelled, budget, options);
+    }
+
+    /**
+     * Returns the fingerprint under which the rule sets of this engine are cached. It is only computed the first time
+     * the cache is used, so engines without a cache never hash their schema.
+     *
+     * @return the fingerprint.
+     */
+    private long getCacheFingerprint() {
+        Long fingerprint = cacheFingerprint;
+        if (fingerprint == null) {
+            // Threads that use the cache at the same time may both compute the fingerprint, to the same value.
+            fingerprint = computeCacheFingerprint();
+            cacheFingerprint = fingerprint;
+        }
+
+        return fingerprint;
+    }
+
+    /**
+     * Computes the fingerprint under which the rule sets of this engine are cached. It combines the fingerprint of the
+     * schema with the enabled phases, since the rules for a query depend on both. Whether allocations are counted does
+     * not affect the rules.
+     *
+     * @return the fingerprint.
+     */
+    private long computeCacheFingerprint() {
+        long fingerprint;
+        if (schemaIndex != null) {
+            fingerprint = schemaIndex.getFingerprint();
+        } else {
+            fingerprint = schema == null ? 0 : SchemaIndex.fingerprintOf(schema);
+        }
+        if (options.getPhases().equals(GenerationOptions.ALL.getPhases())) {
+            return fingerprint;
+        }
+
+        long phases = 0;
+        for (Phase phase : options.getPhases()) {
+            phases |= 1L << phase.ordinal();
+        }
+
+        return fingerprint ^ ~phases;
+    }
+
+    /**
+     * Creates an empty table structure for a single query. The structure shares the prebuilt schema index, if the
+     * engine has one.
+     *
+     * @return a table structure without any layers.
+     */
+    private TableStructure createTableStructure() {
+        if (schemaIndex == null) {
+            TableStructure tableStructure = new TableStructure();
+            tableStructure.setSchema(schema);
+            return tableStructure;
+        }
+
+        return new TableStructure(schemaIndex);
+    }
+
+    /**
+     * Parses the given query and returns the body of the SELECT statement it represents. If the engine has a parse
+     * cache, the query is only parsed if it is not cached.
+     *
+     * @param query the query to parse.
+     * @return the body of the parsed SELECT statement, which the caller is free to modify.
+     */
+    private SelectBody parse(String query) {
+        if (query == null) {
+            throw new CannotBeNullException(NULL_INPUT_MESSAGE);
+        }
+
+        if (parseCache == null) {
+            return parseUncached(query);
+        }
+
+        String key = QueryFingerprint.of(query).getKey();
+        SelectBody cached = parseCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        SelectBody selectBody = parseUncached(query);
+        parseCache.put(key, selectBody);
+
+        return selectBody;
+    }
+
+    /**
+     * Parses the given query, without consulting the parse cache, and returns the body of the SELECT statement it
+     * represents.
+     *
+     * @param query the query to parse. It must not be null.
+     * @return the body of the parsed SELECT statement.
+     */
+    private SelectBody parseUncached(String query) {
+        Statement statement = parseStatement(query);
+        if (!(statement instanceof Select)) {
+            throw new UnsupportedInputException("Only SELECT statements are supported.", false);
+        }
+
+        return ((Select) statement).getSelectBody();
+    }
+
+    /**
+     * Parses the given statement within the parse limits of the engine. The size and nesting depth of the statement
+     * are checked before it is handed to the parser.
+     *
+     * @param statement the statement to parse. It must not be null.
+     * @return the parsed statement.
+     */
+    private Statement parseStatement(String statement) {
+        if (statement.length() > parseLimits.getMaxLength()) {
+            throw new ParseLimitExceededException("The query is longer than " + parseLimits.getMaxLength()
+                + " characters.");
+        }
+
+        if (parseLimits.getMaxNestingDepth() < Integer.MAX_VALUE
+                && Queries.nestingDepth(statement) > parseLimits.getMaxNestingDepth()) {
+            throw new ParseLimitExceededException("The query is nested more than " + parseLimits.getMaxNestingDepth()
+                + " levels deep.");
+        }
+
+        try {
+            if (parseLimits.getMaxTime() == null) {
+                return Parsers.parse(statement);
+            }
+            return Parsers.parse(statement, parseLimits.getMaxTime());
+        } catch (JSQLParserException e) {
+            throw new CannotBeParsedException(PARSE_ERROR_MESSAGE, false);
+        } catch (TimeoutException e) {
+            throw new ParseLimitExceededException("Parsing the query took longer than " + parseLimits.getMaxTime()
+                + '.');
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.sergdelft.sqlcorgi;
+
+import com.github.sergdelft.sqlcorgi.exceptions.CannotBeNullException;
+import com.github.sergdelft.sqlcorgi.exceptions.CannotBeParsedException;
+import com.github.sergdelft.sqlcorgi.exceptions.ParseLimitExceededException;
+import com.github.sergdelft.sqlcorgi.exceptions.UnsupportedInputException;
+import com.github.sergdelft.sqlcorgi.schema.AmbiguousColumnException;
+import com.github.sergdelft.sqlcorgi.schema.UnknownColumnException;
+import com.github.sergdelft.sqlcorgi.schema.UnknownTableException;
+
+/**
+ * The reasons for which no rules can be generated for a query, as reported by a {@link GenerationResult}. They allow
+ * bulk runs to tally and filter failures without inspecting exceptions.
+ */
+public enum ErrorCode {
+
+    /**
+     * The rules have been generated.
+     */
+    NONE,
+
+    /**
+     * The query was null.
+     */
+    NULL_INPUT,
+
+    /**
+     * The query could not be parsed.
+     */
+    PARSE_ERROR,
+
+    /**
+     * The query was not parsed, because it exceeds the {@link ParseLimits} of the engine.
+     */
+    PARSE_LIMIT_EXCEEDED,
+
+    /**
+     * The query is not a SELECT statement, or uses a construct that is not supported.
+     */
+    UNSUPPORTED_INPUT,
+
+    /**
+     * The query refers to a table or column that is not in the schema, or refers to a column ambiguously.
+     */
+    SCHEMA_MISMATCH,
+
+    /**
+     * The rules could not be generated for any other reason.
+     */
+    INTERNAL_ERROR;
+
+    /**
+     * Returns the code that describes the given exception.
+     *
+     * @param error the exception that prevented rules from being generated.
+     * @return the code for the exception.
+     */
+    static ErrorCode of(RuntimeException error) {
+        if (error instanceof CannotBeNullException) {
+            return NULL_INPUT;
+        } else if (error instanceof ParseLimitExceededException) {
+            return PARSE_LIMIT_EXCEEDED;
+        } else if (error instanceof CannotBeParsedException) {
+            return PARSE_ERROR;
+        } else if (error instanceof UnsupportedInputException) {
+            return UNSUPPORTED_INPUT;
+        } else if (error instanceof UnknownTableException || error instanceof UnknownColumnException
+                || error instanceof AmbiguousColumnException) {
+            return SCHEMA_MISMATCH;
+        }
+
+        return INTERNAL_ERROR;
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.sergdelft.sqlcorgi;
+
+import java.time.Duration;
+
+/**
+ * Limits on the amount of work that may be spent on generating the rules for a single query. Some queries, such as
+ * queries with deeply nested conditions, many outer joins or many nested subqueries, give rise to so many rules that
+ * generating all of them is not feasible. Once a budget is exhausted, generation stops and the rules that have been
+ * generated so far are returned as a truncated result.
+ */
+public final class GenerationBudget {
+
+    /**
+     * A budget without any limits.
+     */
+    public static final GenerationBudget UNLIMITED = new GenerationBudget(Integer.MAX_VALUE, null, Integer.MAX_VALUE);
+
+    private final int maxRules;
+    private final Duration maxTime;
+    private final int maxSubqueryDepth;
+
+    /**
+     * Creates a budget.
+     *
+     * @param maxRules the maximum number of distinct rules to generate. Must be positive.
+     * @param maxTime the maximum wall time to spend on a query, or {@code null} if the time is not limited. Must be
+     *                positive.
+     * @param maxSubqueryDepth the maximum nesting depth of the subqueries that are covered. At depth 0, only the
+     *                         query itself is covered. Must not be negative.
+     */
+    public GenerationBudget(int maxRules, Duration maxTime, int maxSubqueryDepth) {
+        if (maxRules < 1) {
+            throw new IllegalArgumentException("The maximum number of rules must be positive, but was " + maxRules
+                + '.');
+        }
+
+        if (maxTime != null && (maxTime.isNegative() || maxTime.isZero())) {
+            throw new IllegalArgumentException("The maximum time must be positive, but was " + maxTime + '.');
+        }
+
+        if (maxSubqueryDepth < 0) {
+            throw new IllegalArgumentException("The maximum subquery depth must not be negative, but was "
+                + maxSubqueryDepth + '.');
+        }
+
+        this.maxRules = maxRules;
+        this.maxTime = maxTime;
+        this.maxSubqueryDepth = maxSubqueryDepth;
+    }
+
+    public int getMaxRules() {
+        return maxRules;
+    }
+
+    public Duration getMaxTime() {
+        return maxTime;
+    }
+
+    public int getMaxSubqueryDepth() {
+        return maxSubqueryDepth;
+    }
+
+    /**
+     * Returns whether this budget imposes no limits at all.
+     *
+     * @return {@code true} if none of the limits is set.
+     */
+    public boolean isUnlimited() {
+        return maxRules == Integer.MAX_VALUE && maxTime == null && maxSubqueryDepth == Integer.MAX_VALUE;
+    }
+}
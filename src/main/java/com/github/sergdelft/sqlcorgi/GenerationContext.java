@@ -0,0 +1,276 @@
+package com.github.sergdelft.sqlcorgi;
+
+import com.github.sergdelft.sqlcorgi.util.cloner.CloneCounters;
+import com.github.sergdelft.sqlcorgi.util.cloner.LeafInterner;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The state of a single rule generation run, which is shared by all visitors and generators that take part in it.
+ * It determines which {@link Phase}s are run. The generators pass through the checkpoints of the context at regular
+ * points, so that a run that has been cancelled, or that has exhausted its {@link GenerationBudget}, stops doing work
+ * as soon as possible, instead of running to completion.
+ * <p>
+ * A context belongs to a single run and must not be reused.
+ */
+public final class GenerationContext {
+
+    private final BooleanSupplier cancelled;
+    private final GenerationBudget budget;
+    private final GenerationOptions options;
+    private final long deadline;
+    private final LeafInterner leafInterner = new LeafInterner();
+    private final CloneStatistics cloneStatistics = new CloneStatistics();
+    private final Deque<PhaseFrame> phases = new ArrayDeque<>();
+
+    private int ruleCount;
+    private int subqueryDepth;
+    private boolean truncated;
+
+    /**
+     * Creates a context for a run that cannot be cancelled and has no budget.
+     */
+    public GenerationContext() {
+        this(() -> false, GenerationBudget.UNLIMITED);
+    }
+
+    /**
+     * Creates a context for a run that has no budget, and that is cancelled as soon as {@code cancelled} returns
+     * {@code true}.
+     *
+     * @param cancelled the condition under which the run is cancelled. It is evaluated at every checkpoint, so it
+     *                  should be cheap. It must not be null.
+     */
+    public GenerationContext(BooleanSupplier cancelled) {
+        this(cancelled, GenerationBudget.UNLIMITED);
+    }
+
+    /**
+     * Creates a context for a run that is limited by the given budget, and that is cancelled as soon as
+     * {@code cancelled} returns {@code true}. The time budget starts running when the context is created.
+     *
+     * @param cancelled the condition under which the run is cancelled. It is evaluated at every checkpoint, so it
+     *                  should be cheap. It must not be null.
+     * @param budget the budget of the run. It must not be null.
+     */
+    public GenerationContext(BooleanSupplier cancelled, GenerationBudget budget) {
+        this(cancelled, budget, GenerationOptions.ALL);
+    }
+
+    /**
+     * Creates a context for a run that only runs the phases enabled by {@code options}, that is limited by the given
+     * budget, and that is cancelled as soon as {@code cancelled} returns {@code true}. The time budget starts running
+     * when the context is created.
+     *
+     * @param cancelled the condition under which the run is cancelled. It is evaluated at every checkpoint, so it
+     *                  should be cheap. It must not be null.
+     * @param budget the budget of the run. It must not be null.
+     * @param options the phases to run. It must not be null.
+     */
+    public GenerationContext(BooleanSupplier cancelled, GenerationBudget budget, GenerationOptions options) {
+        if (cancelled == null) {
+            throw new IllegalArgumentException("The cancellation condition must not be null.");
+        }
+
+        if (budget == null) {
+            throw new IllegalArgumentException("The generation budget must not be null.");
+        }
+
+        if (options == null) {
+            throw new IllegalArgumentException("The generation options must not be null.");
+        }
+
+        this.cancelled = cancelled;
+        this.budget = budget;
+        this.options = options;
+        this.deadline = budget.getMaxTime() == null ? 0 : System.nanoTime() + budget.getMaxTime().toNanos();
+    }
+
+    public GenerationBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Returns the interner of the leaves of the rules of the run, so that all rules of a query can share their equal
+     * columns and literals.
+     *
+     * @return the interner of the run.
+     */
+    public LeafInterner getLeafInterner() {
+        return leafInterner;
+    }
+
+    /**
+     * Returns the copying that the phases of the run have done so far.
+     *
+     * @return the clone statistics of the run.
+     */
+    public CloneStatistics getCloneStatistics() {
+        return cloneStatistics;
+    }
+
+    /**
+     * Starts attributing copying and allocations to the given phase. Phases may be nested, in which case they are
+     * attributed to the innermost phase. Each call must be paired with a call to {@link #exitPhase()}. If the options
+     * of the run count allocated bytes, the allocation counter of the thread is read here and when the phase is exited,
+     * but not for the individual copies.
+     *
+     * @param phase the phase that is started.
+     */
+    public void enterPhase(Phase phase) {
+        long startBytes = options.isCountingAllocatedBytes() ? CloneCounters.allocatedBytes() : 0;
+        phases.push(new PhaseFrame(phase, CloneCounters.clonedNodes(), startBytes));
+    }
+
+    /**
+     * Ends the phase that was last entered, and records the nodes it copied itself, and the bytes it allocated itself
+     * if they are counted, in the clone statistics of the run.
+     */
+    public void exitPhase() {
+        PhaseFrame frame = phases.pop();
+        long nodes = CloneCounters.clonedNodes() - frame.startNodes;
+        long bytes = options.isCountingAllocatedBytes() ? CloneCounters.allocatedBytes() - frame.startBytes : 0;
+        cloneStatistics.record(frame.phase, nodes - frame.nestedNodes, bytes - frame.nestedBytes);
+
+        PhaseFrame enclosing = phases.peek();
+        if (enclosing != null) {
+            enclosing.nestedNodes += nodes;
+            enclosing.nestedBytes += bytes;
+        }
+    }
+
+    /**
+     * Returns whether the given phase is run.
+     *
+     * @param phase the phase to check.
+     * @return {@code true} if the phase is enabled by the options of the run.
+     */
+    public boolean isEnabled(Phase phase) {
+        return options.isEnabled(phase);
+    }
+
+    /**
+     * Returns whether the run has been cancelled.
+     *
+     * @return {@code true} if the run has been cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled.getAsBoolean();
+    }
+
+    /**
+     * Returns whether the run has been cut short because its budget was exhausted, which means that not all rules
+     * have been generated.
+     *
+     * @return {@code true} if the run has been truncated.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Aborts the run if it has been cancelled, by throwing a {@link CancellationException}, or if its time budget
+     * has been exhausted. The rule budget is enforced by {@link #countRule()}, so that a run that outputs exactly as
+     * many rules as its budget allows is not truncated.
+     */
+    public void checkpoint() {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException("The rule generation has been cancelled.");
+        }
+
+        if (budget.getMaxTime() != null && System.nanoTime() - deadline > 0) {
+            truncate();
+        }
+    }
+
+    /**
+     * Returns how many more rules the run may output before its rule budget is spent. Generators use it to avoid
+     * building candidates for rules that could never be output.
+     *
+     * @return the number of rules that may still be output.
+     */
+    public int getRemainingRules() {
+        return budget.getMaxRules() - ruleCount;
+    }
+
+    /**
+     * Marks the run as truncated without aborting it, for generators that leave out candidates for rules to stay
+     * within the budget. It must only be called if a candidate is actually left out.
+     */
+    public void markTruncated() {
+        truncated = true;
+    }
+
+    /**
+     * Records that a new rule is about to be output. If the rule budget has already been spent, the run is aborted
+     * instead.
+     */
+    public void countRule() {
+        if (ruleCount >= budget.getMaxRules()) {
+            truncate();
+        }
+
+        ruleCount++;
+    }
+
+    /**
+     * Enters a subquery, if the subquery depth budget allows it. Each successful call must be paired with a call to
+     * {@link #exitSubquery()}.
+     *
+     * @return {@code true} if the subquery may be covered, or {@code false} if it is nested too deeply, in which case
+     *         the run is marked as truncated.
+     */
+    public boolean enterSubquery() {
+        if (subqueryDepth >= budget.getMaxSubqueryDepth()) {
+            truncated = true;
+            return false;
+        }
+
+        subqueryDepth++;
+        return true;
+    }
+
+    /**
+     * Leaves the subquery that was last entered.
+     */
+    public void exitSubquery() {
+        subqueryDepth--;
+    }
+
+    /**
+     * Marks the run as truncated and aborts it.
+     */
+    private void truncate() {
+        truncated = true;
+        throw new BudgetExceededException();
+    }
+
+    /**
+     * A phase that has been entered, together with the clone counters at the time it was entered.
+     */
+    private static final class PhaseFrame {
+
+        private final Phase phase;
+        private final long startNodes;
+        private final long startBytes;
+        private long nestedNodes;
+        private long nestedBytes;
+
+        /**
+         * Creates a frame for a phase that is entered now.
+         *
+         * @param phase the phase that is entered.
+         * @param startNodes the number of nodes the thread had copied when the phase was entered.
+         * @param startBytes the number of bytes the thread had allocated when the phase was entered, or 0 if bytes are
+         *                   not counted.
+         */
+        PhaseFrame(Phase phase, long startNodes, long startBytes) {
+            this.phase = phase;
+            this.startNodes = startNodes;
+            this.startBytes = startBytes;
+        }
+    }
+}
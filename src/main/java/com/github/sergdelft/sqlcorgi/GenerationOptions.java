@@ -0,0 +1,91 @@
+package com.github.sergdelft.sqlcorgi;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Selects the {@link Phase}s that are run when generating coverage rules. A disabled phase is skipped entirely,
+ * including the copies of the query that it would otherwise make, so that pipelines that only need some kinds of rules
+ * do not pay for the others. The rules produced by the enabled phases are the same as in a run with all phases
+ * enabled.
+ * <p>
+ * The options also determine whether the bytes that each phase allocates are counted in the {@link CloneStatistics}
+ * of a run. Counting them takes two reads of the allocation counter of the thread per phase, so it is disabled by
+ * default.
+ */
+public final class GenerationOptions {
+
+    /**
+     * Options that enable all phases.
+     */
+    public static final GenerationOptions ALL = new GenerationOptions(EnumSet.allOf(Phase.class));
+
+    private final Set<Phase> phases;
+    private final boolean countingAllocatedBytes;
+
+    /**
+     * Creates options that enable exactly the given phases, without counting the bytes they allocate.
+     *
+     * @param phases the phases to enable. It must not be null.
+     */
+    public GenerationOptions(Collection<Phase> phases) {
+        this(phases, false);
+    }
+
+    /**
+     * Creates options that enable exactly the given phases, and that may count the bytes the phases allocate.
+     *
+     * @param phases the phases to enable. It must not be null.
+     * @param countingAllocatedBytes whether the bytes that each phase allocates are counted.
+     */
+    public GenerationOptions(Collection<Phase> phases, boolean countingAllocatedBytes) {
+        if (phases == null) {
+            throw new IllegalArgumentException("The enabled phases must not be null.");
+        }
+
+        this.phases = phases.isEmpty() ? EnumSet.noneOf(Phase.class) : EnumSet.copyOf(phases);
+        this.countingAllocatedBytes = countingAllocatedBytes;
+    }
+
+    /**
+     * Returns the enabled phases.
+     *
+     * @return an unmodifiable set of the enabled phases.
+     */
+    public Set<Phase> getPhases() {
+        return Collections.unmodifiableSet(phases);
+    }
+
+    /**
+     * Returns whether the given phase is enabled.
+     *
+     * @param phase the phase to check.
+     * @return {@code true} if the phase is run.
+     */
+    public boolean isEnabled(Phase phase) {
+        return phases.contains(phase);
+    }
+
+    public boolean isCountingAllocatedBytes() {
+        return countingAllocatedBytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GenerationOptions)) {
+            return false;
+        }
+        GenerationOptions other = (GenerationOptions) o;
+        return countingAllocatedBytes == other.countingAllocatedBytes && phases.equals(other.phases);
+    }
+
+    @Override
+    public int hashCode() {
+        return Boolean.hashCode(countingAllocatedBytes) ^ phases.hashCode();
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.sergdelft.sqlcorgi;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The outcome of generating coverage rules for a single query. A result either holds the generated rules, or the
+ * exception that prevented the rules from being generated, together with an {@link ErrorCode} and message that
+ * describe it. If generation was stopped because its
+ * {@link GenerationBudget} was exhausted, the result holds the rules generated up to that point and is marked as
+ * truncated. The result also holds the {@link CloneStatistics} of the generation.
+ */
+public class GenerationResult {
+
+    private final String query;
+    private final Set<String> rules;
+    private final RuntimeException error;
+    private final ErrorCode errorCode;
+    private final boolean truncated;
+    private final CloneStatistics cloneStatistics;
+
+    /**
+     * Creates a new result for a query.
+     *
+     * @param query the query for which rules were generated.
+     * @param rules the generated rules, or {@code null} if generation failed.
+     * @param error the exception that caused generation to fail, or {@code null} if generation succeeded.
+     * @param truncated whether generation was stopped before all rules were generated.
+     * @param cloneStatistics the clone statistics of the generation.
+     */
+    GenerationResult(String query, Set<String> rules, RuntimeException error, boolean truncated,
+                     CloneStatistics cloneStatistics) {
+        this.query = query;
+        this.rules = rules;
+        this.error = error;
+        this.errorCode = error == null ? ErrorCode.NONE : ErrorCode.of(error);
+        this.truncated = truncated;
+        this.cloneStatistics = cloneStatistics;
+    }
+
+    /**
+     * Creates a result for a query for which rules have successfully been generated.
+     *
+     * @param query the query for which rules were generated.
+     * @param rules the generated rules.
+     * @param cloneStatistics the clone statistics of the generation.
+     * @return a successful result.
+     */
+    static GenerationResult success(String query, Set<String> rules, CloneStatistics cloneStatistics) {
+        return new GenerationResult(query, rules, null, false, cloneStatistics);
+    }
+
+    /**
+     * Creates a result for a query for which generation was stopped because its budget was exhausted.
+     *
+     * @param query the query for which rules were generated.
+     * @param rules the rules that were generated before generation was stopped.
+     * @param cloneStatistics the clone statistics of the generation.
+     * @return a truncated result.
+     */
+    static GenerationResult truncated(String query, Set<String> rules, CloneStatistics cloneStatistics) {
+        return new GenerationResult(query, rules, null, true, cloneStatistics);
+    }
+
+    /**
+     * Creates a result for a query for which no rules could be generated.
+     *
+     * @param query the query for which rule generation failed.
+     * @param error the exception that caused generation to fail.
+     * @return a failed result.
+     */
+    static GenerationResult failure(String query, RuntimeException error) {
+        return failure(query, error, new CloneStatistics());
+    }
+
+    /**
+     * Creates a result for a query for which no rules could be generated after generation had started.
+     *
+     * @param query the query for which rule generation failed.
+     * @param error the exception that caused generation to fail.
+     * @param cloneStatistics the clone statistics of the generation up to the failure.
+     * @return a failed result.
+     */
+    static GenerationResult failure(String query, RuntimeException error, CloneStatistics cloneStatistics) {
+        return new GenerationResult(query, null, error, false, cloneStatistics);
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Returns the rules that have been generated for the query.
+     *
+     * @return an unmodifiable view of the generated rules, or an empty set if generation failed.
+     */
+    public Set<String> getRules() {
+        if (rules == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(rules);
+    }
+
+    public RuntimeException getError() {
+        return error;
+    }
+
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * Returns the message that describes why no rules could be generated for the query.
+     *
+     * @return the message of the error, or {@code null} if generation succeeded.
+     */
+    public String getErrorMessage() {
+        if (error == null) {
+            return null;
+        }
+        return error.getMessage();
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Returns how much copying each phase did while generating the rules for the query. The statistics are empty if
+     * the query could not be parsed, or if its rules were found in a cache.
+     *
+     * @return the clone statistics of the generation.
+     */
+    public CloneStatistics getCloneStatistics() {
+        return cloneStatistics;
+    }
+}
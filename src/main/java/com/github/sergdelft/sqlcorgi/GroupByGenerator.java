@@ -1,6 +1,7 @@
 package com.github.sergdelft.sqlcorgi;
 
 import com.github.sergdelft.sqlcorgi.util.AggregateComponentFactory;
+import com.github.sergdelft.sqlcorgi.util.cloner.LeafInterner;
 import com.github.sergdelft.sqlcorgi.util.cloner.SelectCloner;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.Function;
@@ -20,6 +21,25 @@ import java.util.Set;
  */
 public class GroupByGenerator {
 
+    private final LeafInterner leaves;
+
+    /**
+     * Creates a generator that interns the leaves of its rules by itself.
+     */
+    public GroupByGenerator() {
+        this(new LeafInterner());
+    }
+
+    /**
+     * Creates a generator that interns the leaves of its rules with the given interner, so that they are shared with
+     * the other rules of the same query.
+     *
+     * @param leaves the interner of the leaves of the rules.
+     */
+    public GroupByGenerator(LeafInterner leaves) {
+        this.leaves = leaves;
+    }
+
     /**
      * Main method that generates the rules for the GROUP BY clause.
      *
@@ -28,12 +48,24 @@ public class GroupByGenerator {
      */
     public Set<String> generate(PlainSelect plainSelect) {
         Set<String> outputWithGroupBy = new HashSet<>(2);
-        outputWithGroupBy.add(firstRule(plainSelect).toString());
-        outputWithGroupBy.add(secondRule(plainSelect).toString());
+        RuleSink output = outputWithGroupBy::add;
+        generate(plainSelect, output);
 
         return outputWithGroupBy;
     }
 
+    /**
+     * Generates the rules for the GROUP BY clause and passes each rule to {@code output} as soon as it has been
+     * generated.
+     *
+     * @param plainSelect - query object to generate rules for
+     * @param output - sink to which the rules for the GROUP BY clause are passed
+     */
+    public void generate(PlainSelect plainSelect, StructuredRuleSink output) {
+        emit(output, firstRule(plainSelect));
+        emit(output, secondRule(plainSelect));
+    }
+
     /**
      * Adds {@code HAVING count(*) > 1} to a plainSelect item.
      *
@@ -43,9 +75,9 @@ public class GroupByGenerator {
     private PlainSelect firstRule(PlainSelect plainSelect) {
         PlainSelect plainSelectOut = (PlainSelect) SelectCloner.copy(plainSelect);
 
-        Function count = AggregateComponentFactory.createCountAllColumns();
+        Function count = AggregateComponentFactory.createCountAllColumns(leaves);
 
-        GreaterThan greaterThan1 = AggregateComponentFactory.createGreaterThanOne(count);
+        GreaterThan greaterThan1 = AggregateComponentFactory.createGreaterThanOne(count, leaves);
 
         Expression having = plainSelect.getHaving();
         if (having != null) {
@@ -71,7 +103,7 @@ public class GroupByGenerator {
         PlainSelect plainSelectOut = (PlainSelect) SelectCloner.copy(plainSelect);
         plainSelectOut.setGroupByElement(null);
 
-        Function count = AggregateComponentFactory.createCountAllColumns();
+        Function count = AggregateComponentFactory.createCountAllColumns(leaves);
 
         List<SelectItem> selectItemList = new ArrayList<>();
 
@@ -85,7 +117,7 @@ public class GroupByGenerator {
 
         Function countColumn = AggregateComponentFactory.createCountColumn(groupBy, true);
 
-        GreaterThan greaterThan1 = AggregateComponentFactory.createGreaterThanOne(countColumn);
+        GreaterThan greaterThan1 = AggregateComponentFactory.createGreaterThanOne(countColumn, leaves);
 
         Expression having = plainSelect.getHaving();
         if (having != null) {
@@ -97,4 +129,13 @@ public class GroupByGenerator {
         return plainSelectOut;
     }
 
+    /**
+     * Passes the given rule for the GROUP BY clause to {@code output}. The rule targets its HAVING clause.
+     *
+     * @param output the sink to which the rule is passed.
+     * @param rule the query that makes up the rule.
+     */
+    private static void emit(StructuredRuleSink output, PlainSelect rule) {
+        output.accept(new Rule(rule, Phase.GROUP_BY, rule.getHaving()));
+    }
 }
@@ -40,6 +40,23 @@ public class JoinRulesGenerator {
     private Set<String> simple;
     private PlainSelect sanitized;
     private TableStructure tableStructure;
+    private final GenerationContext context;
+
+    /**
+     * Creates a generator that cannot be cancelled.
+     */
+    public JoinRulesGenerator() {
+        this(new GenerationContext());
+    }
+
+    /**
+     * Creates a generator that stops generating mutations once the given run is cancelled.
+     *
+     * @param context the context of the run the generator takes part in.
+     */
+    public JoinRulesGenerator(GenerationContext context) {
+        this.context = context;
+    }
 
     /**
      * Takes in a statement and mutates the joins. Each join will have its own set of mutations added to the results.
@@ -49,42 +66,90 @@ public class JoinRulesGenerator {
      * @return A set of mutated queries in string format.
      */
     public Set<String> generate(PlainSelect plainSelect, TableStructure tableStructure) {
-        List<Join> joins = plainSelect.getJoins();
-
-        this.tableStructure = tableStructure;
         Set<String> result = new TreeSet<>();
-        simple = new HashSet<>();
-        fromItem = plainSelect.getFromItem();
-        this.plainSelect = plainSelect;
+        RuleSink output = result::add;
+        generate(plainSelect, tableStructure, output);
 
-        if (joins == null || joins.isEmpty()) {
-            return new HashSet<>();
-        }
+        return result;
+    }
 
-        for (Join j : joins) {
-            if (j.isSimple()) {
-                simple.add(j.getRightItem().toString().toLowerCase());
-                simple.add(fromItem.toString().toLowerCase());
-            }
+    /**
+     * Takes in a statement and mutates the joins. Each mutated query is passed to {@code output} as soon as it has
+     * been generated. The mutated queries are only copied if {@code output} may keep them, that is, unless it
+     * {@linkplain StructuredRuleSink#rendersImmediately() renders them immediately}.
+     *
+     * @param plainSelect The statement for which the joins have to be mutated.
+     * @param tableStructure The table structure related to the input query.
+     * @param output The sink to which the mutated queries are passed.
+     */
+    public void generate(PlainSelect plainSelect, TableStructure tableStructure, StructuredRuleSink output) {
+        if (!prepare(plainSelect, tableStructure)) {
+            return;
         }
 
-        Expression where = plainSelect.getWhere();
-
-        implicitInnerJoinDeduction(joins, where);
         sanitized = (PlainSelect) copy(plainSelect);
 
         outerIncrementRelations = generateOIRsForEachJoin(plainSelect.getJoins());
 
         if (!outerIncrementRelations.isEmpty()) {
             Set<JoinWhereItem> items = handleJoins(this.plainSelect);
+            RuleTemplate template = new RuleTemplate(plainSelect);
             for (JoinWhereItem j : items) {
+                context.checkpoint();
                 plainSelect.setJoins(j.getJoins());
                 plainSelect.setWhere(j.getJoinWhere());
-                result.add(plainSelect.toString());
+
+                PlainSelect rule = output.rendersImmediately() ? plainSelect : (PlainSelect) copy(plainSelect);
+                output.accept(new Rule(rule, Phase.JOINS, rule.getWhere(), template));
+            }
+        }
+    }
+
+    /**
+     * Only sanitizes the joins of the given statement, by turning implicit inner joins into explicit ones, without
+     * generating any mutations. The statement is modified in place.
+     *
+     * @param plainSelect The statement for which the joins have to be sanitized.
+     * @param tableStructure The table structure related to the input query.
+     * @return The sanitized statement, or {@code null} if the statement has no joins.
+     */
+    public PlainSelect sanitize(PlainSelect plainSelect, TableStructure tableStructure) {
+        if (!prepare(plainSelect, tableStructure)) {
+            return null;
+        }
+
+        sanitized = plainSelect;
+        return sanitized;
+    }
+
+    /**
+     * Prepares the generator for the given statement and deduces its implicit inner joins.
+     *
+     * @param plainSelect The statement for which the joins have to be mutated.
+     * @param tableStructure The table structure related to the input query.
+     * @return Whether the statement has any joins.
+     */
+    private boolean prepare(PlainSelect plainSelect, TableStructure tableStructure) {
+        List<Join> joins = plainSelect.getJoins();
+
+        this.tableStructure = tableStructure;
+        simple = new HashSet<>();
+        fromItem = plainSelect.getFromItem();
+        this.plainSelect = plainSelect;
+
+        if (joins == null || joins.isEmpty()) {
+            return false;
+        }
+
+        for (Join j : joins) {
+            if (j.isSimple()) {
+                simple.add(j.getRightItem().toString().toLowerCase());
+                simple.add(fromItem.toString().toLowerCase());
             }
         }
 
-        return result;
+        implicitInnerJoinDeduction(joins, plainSelect.getWhere());
+        return true;
     }
 
     /**
@@ -177,6 +242,7 @@ public class JoinRulesGenerator {
         Set<JoinWhereItem> results = new HashSet<>();
 
         for (int i = 0; i < joins.size(); i++) {
+            context.checkpoint();
             OuterIncrementRelation oir = outerIncrementRelations.get(i);
             if (oir != null) {
                 if (oir.getLoiRelColumns() != null && !oir.getLoiRelColumns().isEmpty()) {
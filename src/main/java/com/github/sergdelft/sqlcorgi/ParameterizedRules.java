@@ -0,0 +1,291 @@
+package com.github.sergdelft.sqlcorgi;
+
+import com.github.sergdelft.sqlcorgi.query.ParameterOffset;
+import com.github.sergdelft.sqlcorgi.util.Queries;
+import net.sf.jsqlparser.expression.operators.arithmetic.Addition;
+import net.sf.jsqlparser.expression.operators.arithmetic.Subtraction;
+import net.sf.jsqlparser.util.deparser.ExpressionDeParser;
+import net.sf.jsqlparser.util.deparser.SelectDeParser;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The coverage rules of a prepared statement, in which the JDBC parameters have been kept symbolic. Positional
+ * parameters are numbered, so a rule refers to them as {@code ?1}, {@code ?2}, and so on, while named parameters keep
+ * their {@code :name}. Boundary values for a parameter that is compared to a numeric column are expressed relative to
+ * it, as {@code ?1 + 1} and {@code ?1 - 1}.
+ * <p>
+ * The rules are generated once per statement and can then be bound to the parameters of every execution. Binding folds
+ * the boundary offsets into numeric values, so a bound rule reads the same as the rule that would have been generated
+ * for the statement with its parameters inlined. Only the offsets that were generated as boundaries are folded; the
+ * rules are rendered with a marker after each parameter that has such an offset, so that arithmetic that the statement
+ * itself applies to a parameter, such as {@code ? + 1}, is kept as it is.
+ */
+public final class ParameterizedRules {
+
+    private static final char OFFSET_MARKER = '\u0000';
+    private static final Pattern OFFSET = Pattern.compile(OFFSET_MARKER + " ([+-]) 1");
+
+    private final Set<String> markedRules;
+    private final Set<String> rules;
+    private final int parameterCount;
+    private final Set<String> parameterNames;
+
+    /**
+     * Creates the parameterized rules of a statement.
+     *
+     * @param statement the statement, in which the positional parameters have been numbered.
+     * @param markedRules the rules that have been generated for {@code statement}, rendered by a deparser created by
+     *                    {@link #createDeParser()}.
+     */
+    ParameterizedRules(String statement, Set<String> markedRules) {
+        this.markedRules = markedRules;
+        this.rules = new HashSet<>();
+        for (String rule : markedRules) {
+            rules.add(rule.replace(String.valueOf(OFFSET_MARKER), ""));
+        }
+
+        int count = 0;
+        Set<String> names = new TreeSet<>();
+        int i = 0;
+        while (i < statement.length()) {
+            int end = parameterEnd(statement, i);
+            if (end < 0) {
+                i = Queries.skipQuoted(statement, i);
+                continue;
+            }
+
+            String parameter = statement.substring(i + 1, end);
+            if (statement.charAt(i) == '?') {
+                count = Math.max(count, Integer.parseInt(parameter));
+            } else {
+                names.add(parameter);
+            }
+            i = end;
+        }
+
+        this.parameterCount = count;
+        this.parameterNames = Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * Returns the rules in which the parameters are kept symbolic.
+     *
+     * @return an unmodifiable view of the rules.
+     */
+    public Set<String> getRules() {
+        return Collections.unmodifiableSet(rules);
+    }
+
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    public Set<String> getParameterNames() {
+        return parameterNames;
+    }
+
+    /**
+     * Binds the positional parameters of an execution to the rules.
+     *
+     * @param values the values of the positional parameters, in order.
+     * @return the rules for the execution.
+     * @see #bind(List, Map)
+     */
+    public Set<String> bind(List<?> values) {
+        return bind(values, Collections.emptyMap());
+    }
+
+    /**
+     * Binds the named parameters of an execution to the rules.
+     *
+     * @param namedValues the values of the named parameters, by name.
+     * @return the rules for the execution.
+     * @see #bind(List, Map)
+     */
+    public Set<String> bind(Map<String, ?> namedValues) {
+        return bind(Collections.emptyList(), namedValues);
+    }
+
+    /**
+     * Binds the parameters of an execution to the rules. Values are rendered as SQL literals: {@code null} as
+     * {@code NULL}, numbers as numeric literals, booleans as {@code TRUE} or {@code FALSE}, and any other value as a
+     * string literal of its string representation.
+     *
+     * @param values the values of the positional parameters, in order. There must be exactly one value for each
+     *               positional parameter.
+     * @param namedValues the values of the named parameters, by name. There must be a value for each named parameter.
+     * @return the rules for the execution.
+     */
+    public Set<String> bind(List<?> values, Map<String, ?> namedValues) {
+        if (values.size() != parameterCount) {
+            throw new IllegalArgumentException("Expected " + parameterCount + " positional parameters, but got "
+                + values.size() + '.');
+        }
+
+        if (!namedValues.keySet().containsAll(parameterNames)) {
+            throw new IllegalArgumentException("Expected values for the named parameters " + parameterNames
+                + ", but got " + namedValues.keySet() + '.');
+        }
+
+        Set<String> result = new HashSet<>();
+        for (String rule : markedRules) {
+            result.add(bind(rule, values, namedValues));
+        }
+
+        return result;
+    }
+
+    /**
+     * Binds the parameters of an execution to a single rule.
+     *
+     * @param rule the rule to bind, with its generated boundaries marked.
+     * @param values the values of the positional parameters.
+     * @param namedValues the values of the named parameters.
+     * @return the bound rule.
+     */
+    private static String bind(String rule, List<?> values, Map<String, ?> namedValues) {
+        StringBuilder builder = new StringBuilder(rule.length());
+        Matcher offset = OFFSET.matcher(rule);
+
+        int i = 0;
+        while (i < rule.length()) {
+            int end = parameterEnd(rule, i);
+            if (end < 0) {
+                int next = Queries.skipQuoted(rule, i);
+                builder.append(rule, i, next);
+                i = next;
+                continue;
+            }
+
+            String parameter = rule.substring(i + 1, end);
+            Object value = rule.charAt(i) == '?' ? values.get(Integer.parseInt(parameter) - 1)
+                : namedValues.get(parameter);
+
+            offset.region(end, rule.length());
+            boolean marked = offset.lookingAt();
+            if (marked && value instanceof Number) {
+                builder.append(shift((Number) value, "+".equals(offset.group(1)) ? 1 : -1));
+                i = offset.end();
+            } else {
+                builder.append(render(value));
+                i = marked ? end + 1 : end;
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Creates a deparser that renders rules in the same way as {@link Rule#render()}, except that each boundary that
+     * has been generated for a parameter is marked, by a marker between the parameter and its offset.
+     *
+     * @return the deparser.
+     */
+    static SelectDeParser createDeParser() {
+        return Rule.createDeParser(new ExpressionDeParser() {
+            @Override
+            public void visit(Addition addition) {
+                if (addition instanceof ParameterOffset) {
+                    visitBinaryExpression(addition, OFFSET_MARKER + " + ");
+                } else {
+                    super.visit(addition);
+                }
+            }
+
+            @Override
+            public void visit(Subtraction subtraction) {
+                if (subtraction instanceof ParameterOffset) {
+                    visitBinaryExpression(subtraction, OFFSET_MARKER + " - ");
+                } else {
+                    super.visit(subtraction);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the index just past the parameter that starts at {@code start}.
+     *
+     * @param sql the text to scan.
+     * @param start the index at which the parameter may start.
+     * @return the index just past the parameter, or -1 if no numbered or named parameter starts at the index.
+     */
+    private static int parameterEnd(String sql, int start) {
+        char c = sql.charAt(start);
+        if (c != '?' && c != ':' || start > 0 && isWordPart(sql.charAt(start - 1))
+                || start > 0 && sql.charAt(start - 1) == ':') {
+            return -1;
+        }
+
+        int end = start + 1;
+        while (end < sql.length() && (c == '?' ? Character.isDigit(sql.charAt(end)) : isWordPart(sql.charAt(end)))) {
+            end++;
+        }
+
+        if (end == start + 1 || c == ':' && Character.isDigit(sql.charAt(start + 1))) {
+            return -1;
+        }
+
+        return end;
+    }
+
+    /**
+     * Returns whether the given character can be part of a parameter name.
+     *
+     * @param c the character to check.
+     * @return {@code true} if the character can be part of a name.
+     */
+    private static boolean isWordPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /**
+     * Renders the given value shifted by the given offset, in the same way as
+     * {@link com.github.sergdelft.sqlcorgi.query.NumericValue#add(int)}.
+     *
+     * @param value the value to shift.
+     * @param offset the offset to add.
+     * @return the text of the shifted value.
+     */
+    private static String shift(Number value, int offset) {
+        if (value instanceof BigInteger) {
+            return ((BigInteger) value).add(BigInteger.valueOf(offset)).toString();
+        } else if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).add(BigDecimal.valueOf(offset)).toString();
+        } else if (value instanceof Double || value instanceof Float) {
+            return Double.toString(value.doubleValue() + offset);
+        }
+
+        return Long.toString(value.longValue() + offset);
+    }
+
+    /**
+     * Renders the given value as an SQL literal.
+     *
+     * @param value the value to render.
+     * @return the SQL literal.
+     */
+    private static String render(Object value) {
+        if (value == null) {
+            return "NULL";
+        } else if (value instanceof Double || value instanceof Float) {
+            return Double.toString(((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            return value.toString();
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? "TRUE" : "FALSE";
+        }
+
+        return '\'' + value.toString().replace("'", "''") + '\'';
+    }
+}
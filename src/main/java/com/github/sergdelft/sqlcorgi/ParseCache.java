@@ -0,0 +1,120 @@
+package com.github.sergdelft.sqlcorgi;
+
+import com.github.sergdelft.sqlcorgi.util.cloner.SelectCloner;
+import net.sf.jsqlparser.statement.select.SelectBody;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of parsed queries, which can be shared by {@link CoverageEngine}s. Where a {@link RuleCache} can
+ * only serve queries for the schema their rules were generated for, the parsed form of a query does not depend on the
+ * schema. An engine that is created for a changed schema, or that cannot use its rule cache, can therefore still skip
+ * parsing the queries it has seen before.
+ * <p>
+ * Entries are keyed on the {@linkplain com.github.sergdelft.sqlcorgi.query.QueryFingerprint#getKey() fingerprint key}
+ * of a query. The cached trees are never handed out; every lookup returns a fresh copy made by {@link SelectCloner},
+ * so that callers are free to modify it. Queries that the cloner cannot copy are not cached. When the cache is full,
+ * the least recently used entry is evicted.
+ * <p>
+ * All methods are thread-safe.
+ */
+public final class ParseCache {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int maximumSize;
+    private final Map<String, SelectBody> entries = new LinkedHashMap<>(INITIAL_CAPACITY, 0.75f, true);
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maximumSize the maximum number of parsed queries to hold. Must be positive.
+     */
+    public ParseCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximum size must be positive, but was " + maximumSize + ".");
+        }
+
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Looks up the parsed form of a query.
+     *
+     * @param queryKey the fingerprint key of the query.
+     * @return a copy of the cached body of the query, or {@code null} if the query is not cached.
+     */
+    SelectBody get(String queryKey) {
+        SelectBody selectBody;
+        synchronized (this) {
+            selectBody = entries.get(queryKey);
+        }
+
+        if (selectBody == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        hitCount.incrementAndGet();
+
+        // The cached tree is never modified, so it can be copied without holding the lock.
+        return SelectCloner.copy(selectBody);
+    }
+
+    /**
+     * Stores a copy of the parsed form of a query, evicting the least recently used entry if the cache is full. If
+     * the query cannot be copied, it is not stored.
+     *
+     * @param queryKey the fingerprint key of the query.
+     * @param selectBody the body of the parsed query, which remains owned by the caller.
+     */
+    void put(String queryKey, SelectBody selectBody) {
+        SelectBody copy;
+        try {
+            copy = SelectCloner.copy(selectBody);
+        } catch (UnsupportedOperationException e) {
+            return;
+        }
+
+        synchronized (this) {
+            entries.put(queryKey, copy);
+            if (entries.size() > maximumSize) {
+                entries.remove(entries.keySet().iterator().next());
+                evictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Removes all entries from the cache. The counters are left untouched.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+}
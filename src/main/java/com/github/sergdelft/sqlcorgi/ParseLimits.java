@@ -0,0 +1,76 @@
+package com.github.sergdelft.sqlcorgi;
+
+import java.time.Duration;
+
+/**
+ * Limits on the queries that are handed to the parser. Some inputs, such as queries with deeply nested parentheses or
+ * huge generated {@code IN} lists, take the parser a very long time. Queries that exceed the size or nesting limits
+ * are rejected before they are parsed, by a cheap scan of their text, and parses that exceed the time limit are
+ * abandoned. In both cases, a
+ * {@link com.github.sergdelft.sqlcorgi.exceptions.ParseLimitExceededException} is thrown.
+ * <p>
+ * Queries are parsed on the calling thread. The parser cannot be interrupted, so the time limit is checked each time
+ * the parser reads a token it has not read before, and a parse that exceeds it stops at the next token. While the
+ * parser backtracks over tokens it has already read, which it mostly does for deeply nested parentheses, the time
+ * limit is not checked; the nesting limit guards against such inputs.
+ */
+public final class ParseLimits {
+
+    /**
+     * Limits that accept every query.
+     */
+    public static final ParseLimits UNLIMITED = new ParseLimits(Integer.MAX_VALUE, Integer.MAX_VALUE, null);
+
+    private final int maxLength;
+    private final int maxNestingDepth;
+    private final Duration maxTime;
+
+    /**
+     * Creates parse limits.
+     *
+     * @param maxLength the maximum number of characters of a query. Must be positive.
+     * @param maxNestingDepth the maximum nesting depth of the parentheses in a query. At depth 0, no parentheses are
+     *                        allowed at all. Must not be negative.
+     * @param maxTime the maximum wall time to spend on parsing a query, or {@code null} if the time is not limited.
+     *                Must be positive.
+     */
+    public ParseLimits(int maxLength, int maxNestingDepth, Duration maxTime) {
+        if (maxLength < 1) {
+            throw new IllegalArgumentException("The maximum length must be positive, but was " + maxLength + '.');
+        }
+
+        if (maxNestingDepth < 0) {
+            throw new IllegalArgumentException("The maximum nesting depth must not be negative, but was "
+                + maxNestingDepth + '.');
+        }
+
+        if (maxTime != null && (maxTime.isNegative() || maxTime.isZero())) {
+            throw new IllegalArgumentException("The maximum parse time must be positive, but was " + maxTime + '.');
+        }
+
+        this.maxLength = maxLength;
+        this.maxNestingDepth = maxNestingDepth;
+        this.maxTime = maxTime;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public int getMaxNestingDepth() {
+        return maxNestingDepth;
+    }
+
+    public Duration getMaxTime() {
+        return maxTime;
+    }
+
+    /**
+     * Returns whether these limits accept every query.
+     *
+     * @return {@code true} if none of the limits is set.
+     */
+    public boolean isUnlimited() {
+        return maxLength == Integer.MAX_VALUE && maxNestingDepth == Integer.MAX_VALUE && maxTime == null;
+    }
+}
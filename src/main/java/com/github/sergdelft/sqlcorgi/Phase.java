@@ -0,0 +1,37 @@
+package com.github.sergdelft.sqlcorgi;
+
+/**
+ * The phases in which coverage rules are generated for a query. Each phase targets a different part of the query.
+ */
+public enum Phase {
+
+    /**
+     * Generates rules for the outer joins of a query.
+     */
+    JOINS,
+
+    /**
+     * Generates rules for the conditions in the WHERE clause of a query.
+     */
+    WHERE,
+
+    /**
+     * Generates rules for the aggregate functions in the projection of a query.
+     */
+    AGGREGATES,
+
+    /**
+     * Generates rules for the GROUP BY clause of a query.
+     */
+    GROUP_BY,
+
+    /**
+     * Generates rules for the conditions in the HAVING clause of a query.
+     */
+    HAVING,
+
+    /**
+     * Generates rules for the subqueries of a query, which in turn go through all enabled phases.
+     */
+    SUBQUERIES
+}
@@ -0,0 +1,128 @@
+package com.github.sergdelft.sqlcorgi;
+
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.util.deparser.ExpressionDeParser;
+import net.sf.jsqlparser.util.deparser.SelectDeParser;
+
+/**
+ * A coverage rule in structured form. A rule consists of the query that covers the target, the {@link Phase} that
+ * produced it and the predicate of the query that the rule targets. Consumers that need the syntax tree of a rule can
+ * use it directly, instead of rendering the rule to a string and parsing it again; rendering is a separate step that
+ * only happens when {@link #render()} is called.
+ * <p>
+ * A rule must not be modified. To keep the cost of a rule proportional to the size of the clause it targets, the
+ * clauses of its query other than WHERE and HAVING may be shared with other rules of the same query, as may the columns
+ * and literals of all clauses. Moreover, {@link #render()} may take those other clauses from a {@link RuleTemplate}
+ * that was rendered when the rule was generated, so changes to them would not show up in the rendered rule. Use
+ * {@link com.github.sergdelft.sqlcorgi.util.cloner.SelectCloner#copy(net.sf.jsqlparser.statement.select.SelectBody)}
+ * to obtain a query that can be modified freely, and render it with {@code toString()}.
+ */
+public final class Rule {
+
+    private final PlainSelect select;
+    private final Phase phase;
+    private final Expression target;
+    private final RuleTemplate template;
+
+    /**
+     * Creates a rule.
+     *
+     * @param select the query that makes up the rule.
+     * @param phase the phase that produced the rule.
+     * @param target the predicate of {@code select} that the rule targets, or {@code null} if the rule does not
+     *               target a single predicate.
+     */
+    public Rule(PlainSelect select, Phase phase, Expression target) {
+        this(select, phase, target, null);
+    }
+
+    /**
+     * Creates a rule that is rendered by splicing its joins and conditions into a template.
+     *
+     * @param select the query that makes up the rule.
+     * @param phase the phase that produced the rule.
+     * @param target the predicate of {@code select} that the rule targets, or {@code null} if the rule does not
+     *               target a single predicate.
+     * @param template the template of the clauses that {@code select} shares with the other rules of its phase, or
+     *                 {@code null} if the rule is rendered in full.
+     */
+    public Rule(PlainSelect select, Phase phase, Expression target, RuleTemplate template) {
+        this.select = select;
+        this.phase = phase;
+        this.target = target;
+        this.template = template;
+    }
+
+    /**
+     * Returns the query that makes up the rule. The query must not be modified; see the documentation of this class.
+     *
+     * @return the query of the rule.
+     */
+    public PlainSelect getSelect() {
+        return select;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public Expression getTarget() {
+        return target;
+    }
+
+    /**
+     * Renders the rule to the SQL string in which rules are returned by {@link SQLCorgi}.
+     *
+     * @return the rule as a string.
+     */
+    public String render() {
+        if (template != null) {
+            return template.render(select);
+        }
+        return select.toString();
+    }
+
+    /**
+     * Renders the rule into the buffer of the given deparser. The result is the same as that of {@link #render()}.
+     *
+     * @param deParser the deparser to render the rule with.
+     */
+    void render(SelectDeParser deParser) {
+        if (template != null) {
+            template.render(select, deParser);
+        } else {
+            select.accept(deParser);
+        }
+    }
+
+    /**
+     * Creates a deparser that can render rules with {@link #render(SelectDeParser)}, into a buffer of its own.
+     *
+     * @return the deparser.
+     */
+    static SelectDeParser createDeParser() {
+        return createDeParser(new ExpressionDeParser());
+    }
+
+    /**
+     * Creates a deparser that can render rules with {@link #render(SelectDeParser)}, into a buffer of its own, and that
+     * renders expressions with the given expression deparser.
+     *
+     * @param expressionDeParser the deparser to render the expressions of rules with.
+     * @return the deparser.
+     */
+    static SelectDeParser createDeParser(ExpressionDeParser expressionDeParser) {
+        StringBuilder buffer = new StringBuilder();
+        SelectDeParser deParser = new SelectDeParser(expressionDeParser, buffer);
+        expressionDeParser.setSelectVisitor(deParser);
+        expressionDeParser.setBuffer(buffer);
+
+        return deParser;
+    }
+
+    @Override
+    public String toString() {
+        return render();
+    }
+}
@@ -0,0 +1,284 @@
+package com.github.sergdelft.sqlcorgi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of generated rule sets, which can be shared by {@link CoverageEngine}s. Entries are keyed on the
+ * {@linkplain com.github.sergdelft.sqlcorgi.query.QueryFingerprint#getKey() fingerprint key} of a query together with
+ * the fingerprint of the schema it was generated for, so a single cache can safely serve multiple schemas, and queries
+ * that only differ in their layout, comments or keyword case share an entry.
+ * <p>
+ * The size of the cache is bounded by the total weight of its entries, which is an estimate of the number of bytes
+ * taken up by the cached rules. When the cache is full, the least recently used entries are evicted, but only if the
+ * new entry is requested more frequently than the entries it would replace. Frequencies are estimated with a small
+ * count-min sketch that periodically ages its counters, so that queries that are issued only once cannot push out
+ * queries that are issued over and over again.
+ * <p>
+ * All methods are thread-safe.
+ */
+public final class RuleCache {
+
+    private static final int[] SEEDS = {0x97cb3127, 0xa72b6f87, 0x3b8a1e5d, 0xd6e8feb8};
+    private static final int MAX_FREQUENCY = 15;
+    private static final int MIN_SKETCH_WIDTH = 16;
+    private static final int MAX_SKETCH_WIDTH = 1_048_576;
+    private static final int BYTES_PER_EXPECTED_ENTRY = 1024;
+    private static final int SAMPLE_FACTOR = 10;
+
+    private final long maximumWeight;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(MIN_SKETCH_WIDTH, 0.75f, true);
+    private final byte[][] sketch;
+    private final int sampleSize;
+
+    private long weight;
+    private int additions;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Creates an empty cache. The frequency sketch is sized assuming that a rule set weighs about a kilobyte.
+     *
+     * @param maximumWeight the maximum total weight of the cached rule sets, in bytes. Must be positive.
+     */
+    public RuleCache(long maximumWeight) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("The maximum weight must be positive, but was " + maximumWeight + ".");
+        }
+
+        this.maximumWeight = maximumWeight;
+
+        long expectedEntries = Math.max(MIN_SKETCH_WIDTH, Math.min(MAX_SKETCH_WIDTH,
+            maximumWeight / BYTES_PER_EXPECTED_ENTRY));
+        int width = Integer.highestOneBit((int) expectedEntries - 1) << 1;
+        this.sketch = new byte[SEEDS.length][width];
+        this.sampleSize = SAMPLE_FACTOR * width;
+    }
+
+    /**
+     * Estimates the number of bytes taken up by the given rules.
+     *
+     * @param rules the rules to weigh.
+     * @return the estimated weight of the rules.
+     */
+    static long weigh(Set<String> rules) {
+        long total = 0;
+        for (String rule : rules) {
+            total += 2L * rule.length();
+        }
+
+        return total;
+    }
+
+    /**
+     * Looks up the rules for a query, and records the request in the frequency sketch.
+     *
+     * @param queryKey the fingerprint key of the query.
+     * @param schemaFingerprint the fingerprint of the schema of the query.
+     * @return an unmodifiable set of the cached rules, or {@code null} if the query is not cached.
+     */
+    synchronized Set<String> get(String queryKey, long schemaFingerprint) {
+        Key key = new Key(queryKey, schemaFingerprint);
+        recordAccess(key);
+
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        hitCount.incrementAndGet();
+        return entry.rules;
+    }
+
+    /**
+     * Offers the rules for a query to the cache. The rules are only stored if they fit, and if the query is requested
+     * more frequently than the entries that would have to be evicted to make room for it.
+     *
+     * @param queryKey the fingerprint key of the query.
+     * @param schemaFingerprint the fingerprint of the schema of the query.
+     * @param rules the rules generated for the query.
+     */
+    synchronized void put(String queryKey, long schemaFingerprint, Set<String> rules) {
+        Key key = new Key(queryKey, schemaFingerprint);
+        long entryWeight = weigh(rules);
+        if (entryWeight > maximumWeight || entries.containsKey(key)) {
+            return;
+        }
+
+        List<Key> victims = new ArrayList<>();
+        long freed = 0;
+        int candidateFrequency = frequency(key);
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (weight - freed + entryWeight > maximumWeight) {
+            Map.Entry<Key, Entry> victim = iterator.next();
+            if (frequency(victim.getKey()) >= candidateFrequency) {
+                return;
+            }
+            victims.add(victim.getKey());
+            freed += victim.getValue().weight;
+        }
+
+        for (Key victim : victims) {
+            entries.remove(victim);
+            evictionCount.incrementAndGet();
+        }
+        weight -= freed;
+
+        entries.put(key, new Entry(Collections.unmodifiableSet(new HashSet<>(rules)), entryWeight));
+        weight += entryWeight;
+    }
+
+    /**
+     * Removes all entries from the cache. The counters and the frequency sketch are left untouched.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Increments the estimated frequency of {@code key}. Once the sketch has recorded enough accesses, all counters
+     * are halved, so that the frequency of entries that are no longer requested decays.
+     *
+     * @param key the key that has been requested.
+     */
+    private void recordAccess(Key key) {
+        int hash = key.hashCode();
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(hash, i);
+            if (sketch[i][index] < MAX_FREQUENCY) {
+                sketch[i][index]++;
+            }
+        }
+
+        if (++additions >= sampleSize) {
+            for (byte[] row : sketch) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+            additions /= 2;
+        }
+    }
+
+    /**
+     * Returns the estimated frequency of {@code key}, which is the minimum of its counters in the sketch.
+     *
+     * @param key the key to look up.
+     * @return the estimated number of recent requests for the key.
+     */
+    private int frequency(Key key) {
+        int hash = key.hashCode();
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, sketch[i][indexOf(hash, i)]);
+        }
+
+        return frequency;
+    }
+
+    /**
+     * Returns the index of the counter for the given hash in the given row of the sketch.
+     *
+     * @param hash the hash of a key.
+     * @param row the row of the sketch.
+     * @return the index of the counter.
+     */
+    private int indexOf(int hash, int row) {
+        int h = hash * SEEDS[row];
+        h ^= h >>> (Integer.SIZE / 2);
+        return h & (sketch[row].length - 1);
+    }
+
+    /**
+     * The key of a cache entry.
+     */
+    private static final class Key {
+
+        private final String query;
+        private final long schemaFingerprint;
+
+        /**
+         * Creates a key.
+         *
+         * @param query the fingerprint key of the query.
+         * @param schemaFingerprint the fingerprint of the schema.
+         */
+        Key(String query, long schemaFingerprint) {
+            this.query = query;
+            this.schemaFingerprint = schemaFingerprint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return schemaFingerprint == key.schemaFingerprint && query.equals(key.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, schemaFingerprint);
+        }
+    }
+
+    /**
+     * A cached rule set together with its weight.
+     */
+    private static final class Entry {
+
+        private final Set<String> rules;
+        private final long weight;
+
+        /**
+         * Creates an entry.
+         *
+         * @param rules the cached rules.
+         * @param weight the weight of the rules.
+         */
+        Entry(Set<String> rules, long weight) {
+            this.rules = rules;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.sergdelft.sqlcorgi;
+
+import com.github.sergdelft.sqlcorgi.util.FingerprintSet;
+import net.sf.jsqlparser.util.deparser.SelectDeParser;
+
+/**
+ * Receives coverage rules as strings as soon as they have been generated. Using a sink instead of a collection allows
+ * callers to process or store rules one at a time, so that the rules for a query never have to be kept in memory all
+ * at once.
+ * <p>
+ * Rules are not deduplicated before they are passed to a sink, so a sink may receive the same rule more than once.
+ * Wrap the sink with {@link #deduplicating(RuleSink)} if duplicates should be discarded.
+ * <p>
+ * The generators pass each rule to {@link #accept(Rule)}, which renders it and passes it on to {@link #accept(String)}
+ * by default. Sinks may override {@link #accept(Rule)} to render rules in some other way, but must not keep the
+ * structured rules they receive: generators that know they are passing a rule to a sink for strings may reuse its
+ * syntax tree, or pass its text to {@link #accept(String)} directly. Callers that keep structured rules implement
+ * {@link StructuredRuleSink} instead.
+ */
+@FunctionalInterface
+public interface RuleSink extends StructuredRuleSink {
+
+    /**
+     * Accepts a single generated coverage rule.
+     *
+     * @param rule the rule that has been generated.
+     */
+    void accept(String rule);
+
+    /**
+     * Accepts a single generated coverage rule in structured form, by rendering it and passing it on to
+     * {@link #accept(String)}. The rule must not be kept.
+     *
+     * @param rule the rule that has been generated.
+     */
+    @Override
+    default void accept(Rule rule) {
+        accept(rule.render());
+    }
+
+    /**
+     * Returns {@code true}, since a sink for strings must not keep the structured rules it receives.
+     *
+     * @return {@code true}.
+     */
+    @Override
+    default boolean rendersImmediately() {
+        return true;
+    }
+
+    /**
+     * Creates a sink that passes each distinct rule to the given sink once, and discards its duplicates. Only a
+     * 128-bit fingerprint of each rule is kept to recognize duplicates, so the memory the sink needs does not depend
+     * on the length of the rules. Structured rules are rendered to compute their fingerprint, into a buffer that is
+     * reused for every rule.
+     *
+     * @param output the sink to pass the distinct rules to.
+     * @return a sink that discards duplicate rules.
+     * @see FingerprintSet
+     */
+    static RuleSink deduplicating(RuleSink output) {
+        return new RuleSink() {
+            private final FingerprintSet fingerprints = new FingerprintSet();
+            private final SelectDeParser deParser = Rule.createDeParser();
+
+            @Override
+            public void accept(String rule) {
+                if (fingerprints.add(rule)) {
+                    output.accept(rule);
+                }
+            }
+
+            @Override
+            public void accept(Rule rule) {
+                deParser.getBuffer().setLength(0);
+                rule.render(deParser);
+                if (fingerprints.add(deParser.getBuffer())) {
+                    output.accept(rule);
+                }
+            }
+        };
+    }
+
+}
@@ -0,0 +1,227 @@
+package com.github.sergdelft.sqlcorgi;
+
+import com.github.sergdelft.sqlcorgi.util.cloner.SelectCloner;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.select.Join;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.util.deparser.SelectDeParser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The rendered form of the clauses that the rules of a phase have in common. The rules that a phase generates for a
+ * query only differ in their joins, WHERE clause and HAVING clause; the select list, FROM item, GROUP BY, ORDER BY and
+ * the other clauses are the same for all of them. A template renders those common clauses once, leaving holes for the
+ * clauses that differ, so that each rule only has to render its own joins and conditions into a single buffer.
+ * <p>
+ * The text of a rule that is rendered by a template is the same as the result of {@link PlainSelect#toString()}, as
+ * long as the clauses of the rule other than its joins, WHERE and HAVING render the same as those of the query the
+ * template was created from.
+ */
+public final class RuleTemplate {
+
+    private static final String JOINS_MARKER = "\u0000JOINS\u0000";
+    private static final String WHERE_MARKER = "\u0000WHERE\u0000";
+    private static final String HAVING_MARKER = "\u0000HAVING\u0000";
+    private static final String JOIN_SEPARATOR = ", ";
+    private static final String WHERE_KEYWORD = " WHERE ";
+    private static final String HAVING_KEYWORD = " HAVING ";
+
+    private final List<String> fixed = new ArrayList<>();
+    private final List<Hole> holes = new ArrayList<>();
+    private final int fixedLength;
+
+    /**
+     * Creates a template from the clauses of the given query. The joins, WHERE and HAVING of the query are ignored.
+     * The query itself is not modified: the template is rendered from a shallow copy, in which those clauses are
+     * replaced by markers, so that the query may be read by other threads in the meantime.
+     *
+     * @param plainSelect the query whose common clauses make up the template.
+     */
+    public RuleTemplate(PlainSelect plainSelect) {
+        Join marker = new Join();
+        marker.setSimple(true);
+        marker.setRightItem(new Table(JOINS_MARKER));
+
+        PlainSelect markers = SelectCloner.shallowCopy(plainSelect);
+        markers.setJoins(Collections.singletonList(marker));
+        markers.setWhere(new Column(WHERE_MARKER));
+        markers.setHaving(new Column(HAVING_MARKER));
+
+        split(markers.toString(), plainSelect.getFromItem() != null);
+
+        int length = 0;
+        for (String part : fixed) {
+            length += part.length();
+        }
+        this.fixedLength = length;
+    }
+
+    /**
+     * Renders a rule, taking its joins and conditions from the given query.
+     *
+     * @param plainSelect the query that makes up the rule.
+     * @return the rule as a string, which is the same as {@code plainSelect.toString()}.
+     */
+    public String render(PlainSelect plainSelect) {
+        if (holes.isEmpty()) {
+            return plainSelect.toString();
+        }
+
+        StringBuilder builder = new StringBuilder(fixedLength * 2);
+        builder.append(fixed.get(0));
+        for (int i = 0; i < holes.size(); i++) {
+            holes.get(i).render(plainSelect, builder);
+            builder.append(fixed.get(i + 1));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Renders a rule into the buffer of the given deparser, taking its joins and conditions from the given query. The
+     * clauses of the rule are deparsed straight into the buffer, without rendering them to strings first.
+     *
+     * @param plainSelect the query that makes up the rule.
+     * @param deParser the deparser to render the clauses of the rule with.
+     */
+    void render(PlainSelect plainSelect, SelectDeParser deParser) {
+        if (holes.isEmpty()) {
+            plainSelect.accept(deParser);
+            return;
+        }
+
+        StringBuilder buffer = deParser.getBuffer();
+        buffer.append(fixed.get(0));
+        for (int i = 0; i < holes.size(); i++) {
+            holes.get(i).deparse(plainSelect, deParser);
+            buffer.append(fixed.get(i + 1));
+        }
+    }
+
+    /**
+     * Splits the text of the template into the fixed parts and the holes between them. If a hole cannot be found,
+     * the template is left without holes, and rules are rendered in full.
+     *
+     * @param text the text of the template, in which the clauses that differ have been replaced by markers.
+     * @param hasFromItem whether the query has a FROM item, without which the joins are not rendered.
+     */
+    private void split(String text, boolean hasFromItem) {
+        List<Hole> found = new ArrayList<>();
+        for (Hole hole : Hole.values()) {
+            if (text.contains(hole.text)) {
+                found.add(hole);
+            } else if (hole != Hole.JOINS || hasFromItem) {
+                return;
+            }
+        }
+
+        found.sort((a, b) -> Integer.compare(text.indexOf(a.text), text.indexOf(b.text)));
+
+        int start = 0;
+        for (Hole hole : found) {
+            int index = text.indexOf(hole.text, start);
+            fixed.add(text.substring(start, index));
+            start = index + hole.text.length();
+        }
+        fixed.add(text.substring(start));
+        holes.addAll(found);
+    }
+
+    /**
+     * The clauses that are rendered for each rule separately, together with the text that marks them in the
+     * template.
+     */
+    private enum Hole {
+
+        JOINS(JOIN_SEPARATOR + JOINS_MARKER) {
+            @Override
+            void render(PlainSelect plainSelect, StringBuilder builder) {
+                if (plainSelect.getJoins() == null) {
+                    return;
+                }
+
+                // The same separators as in PlainSelect#toString().
+                for (Join join : plainSelect.getJoins()) {
+                    builder.append(join.isSimple() ? JOIN_SEPARATOR : " ").append(join);
+                }
+            }
+
+            @Override
+            void deparse(PlainSelect plainSelect, SelectDeParser deParser) {
+                if (plainSelect.getJoins() == null) {
+                    return;
+                }
+
+                // The deparser writes the separator of each join itself.
+                for (Join join : plainSelect.getJoins()) {
+                    deParser.deparseJoin(join);
+                }
+            }
+        },
+
+        WHERE(WHERE_KEYWORD + WHERE_MARKER) {
+            @Override
+            void render(PlainSelect plainSelect, StringBuilder builder) {
+                if (plainSelect.getWhere() != null) {
+                    builder.append(WHERE_KEYWORD).append(plainSelect.getWhere());
+                }
+            }
+
+            @Override
+            void deparse(PlainSelect plainSelect, SelectDeParser deParser) {
+                if (plainSelect.getWhere() != null) {
+                    deParser.getBuffer().append(WHERE_KEYWORD);
+                    plainSelect.getWhere().accept(deParser.getExpressionVisitor());
+                }
+            }
+        },
+
+        HAVING(HAVING_KEYWORD + HAVING_MARKER) {
+            @Override
+            void render(PlainSelect plainSelect, StringBuilder builder) {
+                if (plainSelect.getHaving() != null) {
+                    builder.append(HAVING_KEYWORD).append(plainSelect.getHaving());
+                }
+            }
+
+            @Override
+            void deparse(PlainSelect plainSelect, SelectDeParser deParser) {
+                if (plainSelect.getHaving() != null) {
+                    deParser.getBuffer().append(HAVING_KEYWORD);
+                    plainSelect.getHaving().accept(deParser.getExpressionVisitor());
+                }
+            }
+        };
+
+        private final String text;
+
+        /**
+         * Creates a hole.
+         *
+         * @param text the text that marks the hole in the template.
+         */
+        Hole(String text) {
+            this.text = text;
+        }
+
+        /**
+         * Renders the clause of the given query that fills the hole.
+         *
+         * @param plainSelect the query that makes up the rule.
+         * @param builder the buffer to render the clause into.
+         */
+        abstract void render(PlainSelect plainSelect, StringBuilder builder);
+
+        /**
+         * Deparses the clause of the given query that fills the hole into the buffer of the given deparser.
+         *
+         * @param plainSelect the query that makes up the rule.
+         * @param deParser the deparser to render the clause with.
+         */
+        abstract void deparse(PlainSelect plainSelect, SelectDeParser deParser);
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.sergdelft.sqlcorgi;
+
+import net.sf.jsqlparser.util.deparser.SelectDeParser;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link RuleSink} that writes rules to an {@link Appendable}, {@link Writer} or {@link OutputStream}, one rule per
+ * line. It is meant for dumping large numbers of rules to files.
+ * <p>
+ * {@link Rule#render()} is based on {@code toString()}, in which every node of the syntax tree concatenates the strings
+ * of its children, so that the time to render a predicate grows quadratically with its depth. A writer instead renders
+ * each rule in a single pass over its tree, with the deparsers of JSqlParser, into a buffer that is reused for every
+ * rule. The buffer is copied to the output as a whole, so no string is created for a node or a rule. The text that
+ * is written is the same as the result of {@link Rule#render()}.
+ * <p>
+ * I/O errors are thrown as {@link UncheckedIOException}s, since a sink cannot throw checked exceptions. A writer is not
+ * thread-safe.
+ */
+public final class RuleWriter implements RuleSink, Flushable, Closeable {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Appendable output;
+    private final SelectDeParser deParser = Rule.createDeParser();
+    private char[] chars = new char[INITIAL_CAPACITY];
+    private long ruleCount;
+
+    /**
+     * Creates a writer that appends rules to the given output.
+     *
+     * @param output the output to write the rules to.
+     */
+    public RuleWriter(Appendable output) {
+        this.output = output;
+    }
+
+    /**
+     * Creates a writer that writes rules to the given stream, encoded as UTF-8. The writer buffers its output, so it
+     * must be flushed or closed once all rules have been written.
+     *
+     * @param output the stream to write the rules to.
+     */
+    public RuleWriter(OutputStream output) {
+        this(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public void accept(String rule) {
+        deParser.getBuffer().setLength(0);
+        deParser.getBuffer().append(rule);
+        writeLine();
+    }
+
+    @Override
+    public void accept(Rule rule) {
+        deParser.getBuffer().setLength(0);
+        rule.render(deParser);
+        writeLine();
+    }
+
+    /**
+     * Returns the number of rules that have been written.
+     *
+     * @return the number of rules.
+     */
+    public long getRuleCount() {
+        return ruleCount;
+    }
+
+    /**
+     * Flushes the output, if it can be flushed.
+     *
+     * @throws IOException if the output cannot be flushed.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (output instanceof Flushable) {
+            ((Flushable) output).flush();
+        }
+    }
+
+    /**
+     * Flushes and closes the output, if it can be closed.
+     *
+     * @throws IOException if the output cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (output instanceof Closeable) {
+            ((Closeable) output).close();
+        } else {
+            flush();
+        }
+    }
+
+    /**
+     * Ends the rule in the buffer with a line break, and copies the buffer to the output.
+     */
+    private void writeLine() {
+        StringBuilder buffer = deParser.getBuffer();
+        buffer.append('\n');
+        try {
+            if (output instanceof Writer) {
+                // Writer#append(CharSequence) would create a string of the buffer first.
+                if (chars.length < buffer.length()) {
+                    chars = new char[Math.max(buffer.length(), chars.length * 2)];
+                }
+                buffer.getChars(0, buffer.length(), chars, 0);
+                ((Writer) output).write(chars, 0, buffer.length());
+            } else {
+                output.append(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        ruleCount++;
+    }
+}
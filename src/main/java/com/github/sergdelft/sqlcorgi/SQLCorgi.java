@@ -1,25 +1,25 @@
 package com.github.sergdelft.sqlcorgi;
 
 import com.github.sergdelft.sqlcorgi.exceptions.CannotBeNullException;
-import com.github.sergdelft.sqlcorgi.exceptions.CannotBeParsedException;
-import com.github.sergdelft.sqlcorgi.exceptions.UnsupportedInputException;
 import com.github.sergdelft.sqlcorgi.schema.Schema;
-import com.github.sergdelft.sqlcorgi.schema.TableStructure;
-import com.github.sergdelft.sqlcorgi.visitors.SelectStatementVisitor;
-import net.sf.jsqlparser.JSQLParserException;
-import net.sf.jsqlparser.parser.CCJSqlParserUtil;
-import net.sf.jsqlparser.statement.Statement;
-import net.sf.jsqlparser.statement.select.Select;
-import net.sf.jsqlparser.statement.select.SelectBody;
 
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 /**
- * The entry point of the coverage rule generator.
+ * The entry point of the coverage rule generator. Each method creates a new {@link CoverageEngine} for the given
+ * schema; callers that generate rules for many queries against the same schema should create and reuse an engine.
+ * The methods for a single query do not index the schema, since the index would only be used once, while the methods
+ * for batches and scripts share one index between all queries.
  */
 public final class SQLCorgi {
 
+    private static final String NULL_INPUT_MESSAGE = "Input cannot be null.";
+
     /**
      * No instance of this class should be created.
      */
@@ -35,30 +35,115 @@ public final class SQLCorgi {
      * @return the rules that are generated for the input query.
      */
     public static Set<String> generateRules(String query, Schema schema) {
-        Set<String> result = new HashSet<>();
+        return CoverageEngine.forSingleQuery(schema, null).generateRules(query);
+    }
 
-        if (query == null) {
-            throw new CannotBeNullException("Input cannot be null.");
-        }
+    /**
+     * Generates coverage targets for the given query, using the given cache to avoid generating rules for the same
+     * query over and over again.
+     *
+     * @param query the query for which coverage rules should be generated.
+     * @param schema The database schema.
+     * @param cache the cache in which the rules are looked up and stored.
+     * @return the rules that are generated for the input query.
+     */
+    public static Set<String> generateRules(String query, Schema schema, RuleCache cache) {
+        return CoverageEngine.forSingleQuery(schema, cache).generateRules(query);
+    }
 
-        Statement statement;
-        try {
-            statement = CCJSqlParserUtil.parse(query);
-        } catch (JSQLParserException e) {
-            throw new CannotBeParsedException("Input query could not be parsed.");
-        }
+    /**
+     * Generates coverage targets for the given query. Each rule is passed to {@code output} as soon as it has been
+     * generated, so that the rules never have to be kept in memory all at once. Note that {@code output} may receive
+     * the same rule more than once.
+     *
+     * @param query the query for which coverage rules should be generated.
+     * @param schema The database schema.
+     * @param output the sink to which the generated rules are passed.
+     */
+    public static void generateRules(String query, Schema schema, RuleSink output) {
+        CoverageEngine.forSingleQuery(schema, null).generateRules(query, output);
+    }
+
+    /**
+     * Generates coverage targets for the given query in structured form, without rendering them to strings.
+     *
+     * @param query the query for which coverage rules should be generated.
+     * @param schema The database schema.
+     * @return the structured rules that are generated for the input query.
+     * @see CoverageEngine#generateStructuredRules(String)
+     */
+    public static List<Rule> generateStructuredRules(String query, Schema schema) {
+        return CoverageEngine.forSingleQuery(schema, null).generateStructuredRules(query);
+    }
 
-        if (!(statement instanceof Select)) {
-            throw new UnsupportedInputException("Only SELECT statements are supported.");
+    /**
+     * Generates coverage targets for the given query on the given executor. Cancelling the returned future stops the
+     * generation.
+     *
+     * @param query the query for which coverage rules should be generated.
+     * @param schema The database schema.
+     * @param executor the executor on which the rules are generated.
+     * @return a future that completes with the rules that are generated for the input query.
+     * @see CoverageEngine#generateRulesAsync(String, Executor)
+     */
+    public static CompletableFuture<Set<String>> generateRulesAsync(String query, Schema schema, Executor executor) {
+        return CoverageEngine.forSingleQuery(schema, null).generateRulesAsync(query, executor);
+    }
+
+    /**
+     * Generates coverage targets for each of the given queries, using all available processors.
+     *
+     * @param queries the queries for which coverage rules should be generated.
+     * @param schema the database schema, which is shared by all queries.
+     * @return a result for each query, in the order in which the queries were provided.
+     * @see CoverageEngine#generateRulesBatch(Stream, int)
+     */
+    public static List<GenerationResult> generateRulesBatch(Collection<String> queries, Schema schema) {
+        return generateRulesBatch(queries, schema, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Generates coverage targets for each of the given queries.
+     *
+     * @param queries the queries for which coverage rules should be generated.
+     * @param schema the database schema, which is shared by all queries.
+     * @param parallelism the number of worker threads to use. Must be at least 1.
+     * @return a result for each query, in the order in which the queries were provided.
+     * @see CoverageEngine#generateRulesBatch(Stream, int)
+     */
+    public static List<GenerationResult> generateRulesBatch(Collection<String> queries, Schema schema,
+                                                            int parallelism) {
+        if (queries == null) {
+            throw new CannotBeNullException(NULL_INPUT_MESSAGE);
         }
 
-        SelectBody selectBody = ((Select) statement).getSelectBody();
+        return generateRulesBatch(queries.stream(), schema, parallelism);
+    }
 
-        TableStructure tableStructure = new TableStructure();
-        tableStructure.setSchema(schema);
-        SelectStatementVisitor selectStatementVisitor = new SelectStatementVisitor(tableStructure, result);
-        selectBody.accept(selectStatementVisitor);
+    /**
+     * Generates coverage targets for each of the given queries. A single {@link CoverageEngine} is shared by all
+     * queries of the batch.
+     *
+     * @param queries the queries for which coverage rules should be generated.
+     * @param schema the database schema, which is shared by all queries.
+     * @param parallelism the number of worker threads to use. Must be at least 1.
+     * @return a result for each query, in the encounter order of {@code queries}.
+     * @see CoverageEngine#generateRulesBatch(Stream, int)
+     */
+    public static List<GenerationResult> generateRulesBatch(Stream<String> queries, Schema schema, int parallelism) {
+        return new CoverageEngine(schema).generateRulesBatch(queries, parallelism);
+    }
 
-        return result;
+    /**
+     * Generates coverage targets for each SELECT statement of the given script, using all available processors.
+     * Statements other than SELECT statements are skipped.
+     *
+     * @param script the script containing the statements for which coverage rules should be generated.
+     * @param schema the database schema, which is shared by all statements.
+     * @return a result for each SELECT statement of the script, in the order in which they appear in the script.
+     * @see CoverageEngine#generateRulesForScript(String, int)
+     */
+    public static List<GenerationResult> generateRulesForScript(String script, Schema schema) {
+        return new CoverageEngine(schema).generateRulesForScript(script, Runtime.getRuntime().availableProcessors());
     }
 }
@@ -0,0 +1,29 @@
+package com.github.sergdelft.sqlcorgi;
+
+/**
+ * Receives coverage rules in structured form as soon as they have been generated. The generators pass every rule to a
+ * structured sink, so that callers that work with the syntax trees of the rules never have them rendered to strings.
+ * <p>
+ * Callers that only need the text of the rules implement {@link RuleSink} instead, which renders each rule.
+ */
+@FunctionalInterface
+public interface StructuredRuleSink {
+
+    /**
+     * Accepts a single generated coverage rule in structured form. The sink may keep the rule.
+     *
+     * @param rule the rule that has been generated.
+     */
+    void accept(Rule rule);
+
+    /**
+     * Returns whether the sink is done with each rule by the time {@link #accept(Rule)} returns, for example because
+     * it renders the rule right away. Generators may then pass rules whose syntax trees they go on to modify, instead
+     * of copying each rule. Sinks that keep rules, or parts of them, must return {@code false}, which is the default.
+     *
+     * @return whether the sink is done with each rule once it has accepted it.
+     */
+    default boolean rendersImmediately() {
+        return false;
+    }
+}
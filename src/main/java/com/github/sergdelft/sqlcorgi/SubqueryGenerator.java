@@ -1,17 +1,13 @@
 package com.github.sergdelft.sqlcorgi;
 
-import com.github.sergdelft.sqlcorgi.exceptions.CannotBeParsedException;
-import com.github.sergdelft.sqlcorgi.schema.Schema;
 import com.github.sergdelft.sqlcorgi.schema.TableStructure;
 import com.github.sergdelft.sqlcorgi.util.cloner.SelectCloner;
 import com.github.sergdelft.sqlcorgi.visitors.SelectStatementVisitor;
 import com.github.sergdelft.sqlcorgi.visitors.subqueries.SubqueryFinder;
 import com.github.sergdelft.sqlcorgi.visitors.subqueries.SubqueryRemover;
-import net.sf.jsqlparser.JSQLParserException;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
 import net.sf.jsqlparser.expression.operators.relational.ExistsExpression;
-import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.statement.select.*;
 
 import java.util.*;
@@ -38,22 +34,52 @@ public final class SubqueryGenerator {
     public static Set<String> coverSubqueries(PlainSelect plainSelect, TableStructure tableStructure) {
 
         Set<String> rules = new HashSet<>();
-
-        coverFromSubqueries(plainSelect, tableStructure.getSchema(), rules);
-        coverSelectOperatorSubqueries(plainSelect, tableStructure, rules);
+        RuleSink output = rules::add;
+        coverSubqueries(plainSelect, tableStructure, output);
 
         return rules;
     }
 
+    /**
+     * Generates coverage rules for subqueries in the given {@link PlainSelect}. Each rule is passed to {@code rules}
+     * as soon as it has been generated.
+     *
+     * @param plainSelect the plainSelect to cover.
+     * @param tableStructure the {@code TableStructure} obtained from the main query.
+     * @param rules the sink to which the coverage rules are passed.
+     */
+    public static void coverSubqueries(PlainSelect plainSelect, TableStructure tableStructure,
+                                       StructuredRuleSink rules) {
+
+        coverSubqueries(plainSelect, tableStructure, rules, new GenerationContext());
+    }
+
+    /**
+     * Generates coverage rules for subqueries in the given {@link PlainSelect} as part of the given run. Each rule is
+     * passed to {@code rules} as soon as it has been generated.
+     *
+     * @param plainSelect the plainSelect to cover.
+     * @param tableStructure the {@code TableStructure} obtained from the main query.
+     * @param rules the sink to which the coverage rules are passed.
+     * @param context the context of the run, which is checked for cancellation before each subquery is covered.
+     */
+    public static void coverSubqueries(PlainSelect plainSelect, TableStructure tableStructure,
+                                       StructuredRuleSink rules, GenerationContext context) {
+
+        coverFromSubqueries(plainSelect, tableStructure, rules, context);
+        coverSelectOperatorSubqueries(plainSelect, tableStructure, rules, context);
+    }
+
     /**
      * Generates coverage targets for subqueries found in the WHERE and HAVING clauses of a query. Rules that are
-     * generated will be added to the provided set.
+     * generated will be passed to the provided sink.
      * @param plainSelect the query to cover.
      * @param tableStructure the table structure that provides the context of the main query.
-     * @param rules a set in which all generated rules should be stored.
+     * @param rules the sink to which all generated rules should be passed.
+     * @param context the context of the run.
      */
     private static void coverSelectOperatorSubqueries(PlainSelect plainSelect, TableStructure tableStructure,
-                                                      Set<String> rules) {
+                                                      StructuredRuleSink rules, GenerationContext context) {
 
         Map<String, SubSelect> whereSubs = obtainSubqueries(plainSelect.getWhere());
         Map<String, SubSelect> havingSubs = obtainSubqueries(plainSelect.getHaving());
@@ -63,6 +89,7 @@ public final class SubqueryGenerator {
         combinedSubs.putAll(havingSubs);
 
         for (Map.Entry<String, SubSelect> entry : combinedSubs.entrySet()) {
+            context.checkpoint();
 
             String subquery = entry.getKey();
             SubSelect subCopy = (SubSelect) SelectCloner.copy(entry.getValue());
@@ -74,62 +101,69 @@ public final class SubqueryGenerator {
 
             removeSubquery(subquery, selectCopy, isWhereSub, isHavingSub);
 
-            HashSet<String> mutations = new HashSet<>();
-
-            SelectStatementVisitor selectVisitor = new SelectStatementVisitor(tableStructure, mutations);
-            subCopy.getSelectBody().accept(selectVisitor);
-
-            for (String mutation : mutations) {
-                createSelectExprRules(mutation, selectCopy, isWhereSub, isHavingSub, rules);
-            }
+            SelectStatementVisitor selectVisitor = new SelectStatementVisitor(tableStructure,
+                mutation -> createSelectExprRules(mutation.getSelect(), selectCopy, isWhereSub, isHavingSub, rules),
+                context);
+            coverSubquery(subCopy, selectVisitor, context);
         }
     }
 
     /**
      * Creates one or two coverage rules for the WHERE and/or HAVING expressions of {@code query} using the given
-     * {@code mutation}, depending on the values of {@code forWhere} and {@code forHaving}. The rules are added to the
-     * specified {@code rules} set.
+     * {@code mutation}, depending on the values of {@code forWhere} and {@code forHaving}. The rules are passed to the
+     * specified {@code rules} sink.
      *
-     * @param mutation is the mutation of a subquery that should be used in the coverage rules.
+     * @param mutation is the mutation of a subquery that should be used in the coverage rules. It is made part of the
+     *                 generated rules, so it must not be shared.
      * @param query the query for which the coverage targets must be generated.
      * @param forWhere states whether a rule should be generated for the WHERE expression.
      * @param forHaving states whether a rule should be generated for the HAVING expression.
-     * @param rules the set to which the coverage rules need to be added.
+     * @param rules the sink to which the coverage rules need to be passed.
      */
-    private static void createSelectExprRules(String mutation, PlainSelect query, boolean forWhere, boolean forHaving,
-                                              Set<String> rules) {
-        ExistsExpression existsExpression = new ExistsExpression();
-        SubSelect existsSub = new SubSelect();
-        existsExpression.setRightExpression(existsSub);
-        try {
-            existsSub.setSelectBody(((Select) CCJSqlParserUtil.parse(mutation)).getSelectBody());
-        } catch (JSQLParserException e) {
-            throw new CannotBeParsedException();
-        }
-
+    private static void createSelectExprRules(SelectBody mutation, PlainSelect query, boolean forWhere,
+                                              boolean forHaving, StructuredRuleSink rules) {
         if (forWhere) {
-            Expression where = query.getWhere();
+            ExistsExpression existsExpression = createExistsExpression(mutation);
+            PlainSelect rule = (PlainSelect) SelectCloner.copy(query);
+            Expression where = rule.getWhere();
             if (where == null) {
-                query.setWhere(existsExpression);
+                rule.setWhere(existsExpression);
             } else {
-                query.setWhere(new AndExpression(existsExpression, where));
+                rule.setWhere(new AndExpression(existsExpression, where));
             }
-            rules.add(query.toString());
-            query.setWhere(where);
+            rules.accept(new Rule(rule, Phase.SUBQUERIES, existsExpression));
         }
 
         if (forHaving) {
-            Expression having = query.getHaving();
+            ExistsExpression existsExpression =
+                createExistsExpression(forWhere ? SelectCloner.copy(mutation) : mutation);
+            PlainSelect rule = (PlainSelect) SelectCloner.copy(query);
+            Expression having = rule.getHaving();
             if (having == null) {
-                query.setHaving(existsExpression);
+                rule.setHaving(existsExpression);
             } else {
-                query.setHaving(new AndExpression(existsExpression, having));
+                rule.setHaving(new AndExpression(existsExpression, having));
             }
-            rules.add(query.toString());
-            query.setHaving(having);
+            rules.accept(new Rule(rule, Phase.SUBQUERIES, existsExpression));
         }
     }
 
+    /**
+     * Wraps the given select in an EXISTS expression.
+     *
+     * @param selectBody the select to wrap.
+     * @return an EXISTS expression for {@code selectBody}.
+     */
+    private static ExistsExpression createExistsExpression(SelectBody selectBody) {
+        SubSelect existsSub = new SubSelect();
+        existsSub.setSelectBody(selectBody);
+
+        ExistsExpression existsExpression = new ExistsExpression();
+        existsExpression.setRightExpression(existsSub);
+
+        return existsExpression;
+    }
+
     /**
      * Removes {@code subquery} from {@code query}'s WHERE and/or HAVING expressions, depending on whether {@code
      * fromWhere} and {@code fromHaving} are set.
@@ -160,12 +194,14 @@ public final class SubqueryGenerator {
 
     /**
      * Generates coverage targets for subqueries found in the FROM clause of a query. Rules that are generated will
-     * be added to the provided set.
+     * be passed to the provided sink.
      *  @param plainSelect the SELECT to cover.
-     * @param schema the schema used for the query.
-     * @param rules a set in which all generated rules should be stored.
+     * @param tableStructure the table structure of the main query, whose schema is used for the subqueries.
+     * @param rules the sink to which all generated rules should be passed.
+     * @param context the context of the run.
      */
-    private static void coverFromSubqueries(PlainSelect plainSelect, Schema schema, Set<String> rules) {
+    private static void coverFromSubqueries(PlainSelect plainSelect, TableStructure tableStructure,
+                                            StructuredRuleSink rules, GenerationContext context) {
 
         List<SubSelect> fromSubSelects = new LinkedList<>(extractSubqueriesFromFromItem(plainSelect.getFromItem()));
 
@@ -175,12 +211,32 @@ public final class SubqueryGenerator {
         }
 
         for (SubSelect subSelect : fromSubSelects) {
-            Set<String> subRules = new HashSet<>();
-            TableStructure tableStructure = new TableStructure();
-            tableStructure.setSchema(schema);
-            SelectStatementVisitor selectStatementVisitor = new SelectStatementVisitor(tableStructure, subRules);
-            subSelect.getSelectBody().accept(selectStatementVisitor);
-            rules.addAll(subRules);
+            context.checkpoint();
+            SelectStatementVisitor selectStatementVisitor =
+                new SelectStatementVisitor(tableStructure.emptyCopy(), rules, context);
+            coverSubquery(subSelect, selectStatementVisitor, context);
+        }
+    }
+
+    /**
+     * Lets the given visitor cover a single subquery, unless the subquery is nested deeper than the budget of the run
+     * allows.
+     *
+     * @param subSelect the subquery to cover.
+     * @param visitor the visitor that generates the rules for the subquery.
+     * @param context the context of the run.
+     */
+    private static void coverSubquery(SubSelect subSelect, SelectStatementVisitor visitor,
+                                      GenerationContext context) {
+
+        if (!context.enterSubquery()) {
+            return;
+        }
+
+        try {
+            subSelect.getSelectBody().accept(visitor);
+        } finally {
+            context.exitSubquery();
         }
     }
 
@@ -20,4 +20,16 @@ public class CannotBeParsedException extends RuntimeException {
     public CannotBeParsedException(String message) {
         super(message);
     }
+
+    /**
+     * Constructor that accepts a message, and that can skip recording the stack trace. The exception describes a
+     * problem with the input rather than with the code, so the stack trace is of little use, while recording it makes
+     * bad input far more expensive to process than good input.
+     *
+     * @param message - Message to pass along to the Exception
+     * @param writableStackTrace - Whether the stack trace should be recorded
+     */
+    public CannotBeParsedException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
 }
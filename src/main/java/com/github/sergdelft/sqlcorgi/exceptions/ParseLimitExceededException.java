@@ -0,0 +1,17 @@
+package com.github.sergdelft.sqlcorgi.exceptions;
+
+/**
+ *  Exception that can be used to alert users that a query was not parsed, because it is too large, too deeply nested,
+ *  or took too long to parse.
+ */
+public class ParseLimitExceededException extends CannotBeParsedException {
+
+    /**
+     * Constructor that accepts a message. The stack trace is not recorded.
+     *
+     * @param message - Message to pass along to the Exception
+     */
+    public ParseLimitExceededException(String message) {
+        super(message, false);
+    }
+}
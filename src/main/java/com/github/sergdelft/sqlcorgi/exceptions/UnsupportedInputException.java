@@ -13,4 +13,14 @@ public class UnsupportedInputException extends RuntimeException {
     public UnsupportedInputException(String message) {
         super(message);
     }
+
+    /**
+     * Constructor that accepts a message, and that can skip recording the stack trace.
+     *
+     * @param message - Message to pass along to the Exception
+     * @param writableStackTrace - Whether the stack trace should be recorded
+     */
+    public UnsupportedInputException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
 }
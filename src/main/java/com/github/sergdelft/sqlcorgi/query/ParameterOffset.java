@@ -0,0 +1,24 @@
+package com.github.sergdelft.sqlcorgi.query;
+
+import net.sf.jsqlparser.expression.operators.arithmetic.Addition;
+import net.sf.jsqlparser.expression.operators.arithmetic.Subtraction;
+
+/**
+ * Marks an off by one boundary that has been generated for a JDBC parameter, such as {@code ?1 + 1}. The boundary
+ * renders in the same way as the arithmetic it stands for, but can be told apart from arithmetic that the query itself
+ * applies to the parameter, so that only generated boundaries are folded when the parameter is bound to a value.
+ */
+public interface ParameterOffset {
+
+    /**
+     * A boundary one above the value of a parameter.
+     */
+    final class Increment extends Addition implements ParameterOffset {
+    }
+
+    /**
+     * A boundary one below the value of a parameter.
+     */
+    final class Decrement extends Subtraction implements ParameterOffset {
+    }
+}
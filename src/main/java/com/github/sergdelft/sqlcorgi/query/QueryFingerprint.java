@@ -0,0 +1,243 @@
+package com.github.sergdelft.sqlcorgi.query;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The lexical fingerprint of a query, which is computed by a single pass over its tokens, without parsing it. The
+ * fingerprint consists of two normal forms of the query:
+ * <ul>
+ *     <li>The key, in which the layout of the query has been normalized. Comments are removed, runs of whitespace are
+ *     replaced by a single space, whitespace around parentheses and commas is removed, and keywords are written in
+ *     upper case. Queries with the same key parse to the same statement, so the key can be used to look up the rules
+ *     of a query.</li>
+ *     <li>The shape, which is the key in which every numeric and string literal has been replaced by {@code ?}. Queries
+ *     with the same shape only differ in their literals, so the shape, or its {@linkplain #getHash() hash}, can be
+ *     used to group the queries of a workload.</li>
+ * </ul>
+ * Quoted identifiers and optimizer hints are left untouched, and the key of a query that contains a backslash is the
+ * query itself. Only keywords that the parser never retains in the
+ * statement are written in upper case; words such as {@code LEFT} and {@code END}, which may also name a function or
+ * column, keep their case.
+ */
+public final class QueryFingerprint {
+
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+        "ALL", "AND", "AS", "ASC", "BETWEEN", "BY", "CASE", "CROSS", "DESC", "DISTINCT", "ELSE", "EXCEPT", "EXISTS",
+        "FROM", "FULL", "GROUP", "HAVING", "IN", "INNER", "INTERSECT", "IS", "JOIN", "LIKE", "LIMIT", "MINUS",
+        "NATURAL", "NOT", "NULL", "OFFSET", "ON", "OR", "ORDER", "OUTER", "SELECT", "SOME", "THEN", "UNION", "USING",
+        "WHEN", "WHERE"
+    ));
+
+    private static final String PLACEHOLDER = "?";
+    private static final String QUOTE = "'";
+    private static final String BLOCK_COMMENT_START = "/*";
+    private static final String BLOCK_COMMENT_END = "*/";
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final String key;
+    private final String shape;
+    private final long hash;
+
+    /**
+     * Creates a fingerprint.
+     *
+     * @param key the key of the query.
+     * @param shape the shape of the query.
+     */
+    private QueryFingerprint(String key, String shape) {
+        this.key = key;
+        this.shape = shape;
+
+        long h = FNV_OFFSET_BASIS;
+        for (int i = 0; i < shape.length(); i++) {
+            h = (h ^ shape.charAt(i)) * FNV_PRIME;
+        }
+        this.hash = h;
+    }
+
+    /**
+     * Computes the fingerprint of the given query. Queries that cannot be parsed have a fingerprint as well.
+     *
+     * @param query the query to compute the fingerprint of.
+     * @return the fingerprint of the query.
+     */
+    public static QueryFingerprint of(String query) {
+        StringBuilder key = new StringBuilder(query.length());
+        StringBuilder shape = new StringBuilder(query.length());
+        boolean separated = false;
+
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            int end;
+
+            if (Character.isWhitespace(c)) {
+                separated = true;
+                i++;
+                continue;
+            } else if (isComment(query, i)) {
+                separated = true;
+                i = endOfComment(query, i);
+                continue;
+            }
+
+            if (separated && key.length() > 0 && !isTight(key.charAt(key.length() - 1)) && !isTight(c)) {
+                key.append(' ');
+                shape.append(' ');
+            }
+            separated = false;
+
+            if (c == '\'') {
+                end = indexAfter(query, QUOTE, i + 1);
+                while (end < query.length() && query.charAt(end) == '\'') {
+                    end = indexAfter(query, QUOTE, end + 1);
+                }
+                key.append(query, i, end);
+                shape.append(PLACEHOLDER);
+            } else if (Character.isDigit(c) && (i == 0 || QueryTemplate.isNumberBoundary(query.charAt(i - 1)))) {
+                end = QueryTemplate.endOfNumber(query, i);
+                key.append(query, i, end);
+                shape.append(PLACEHOLDER);
+            } else if (Character.isLetter(c) || c == '_') {
+                end = i + 1;
+                while (end < query.length() && QueryTemplate.isWordPart(query.charAt(end))) {
+                    end++;
+                }
+                String word = query.substring(i, end);
+                String upper = word.toUpperCase(Locale.ROOT);
+                String token = KEYWORDS.contains(upper) && (i == 0 || query.charAt(i - 1) != '.') ? upper : word;
+                key.append(token);
+                shape.append(token);
+            } else {
+                end = endOfQuoted(query, i);
+                key.append(query, i, end);
+                shape.append(query, i, end);
+            }
+
+            i = end;
+        }
+
+        // Escape sequences in string literals could be mistaken for the end of the literal, so the key of such a query
+        // is the query itself, to keep distinct queries from sharing a key.
+        return new QueryFingerprint(query.indexOf('\\') < 0 ? key.toString() : query, shape.toString());
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getShape() {
+        return shape;
+    }
+
+    /**
+     * Returns a 64-bit hash of the shape of the query, which is a compact way to group queries that only differ in
+     * their literals. Different shapes may have the same hash, although that is unlikely.
+     *
+     * @return the hash of the shape.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Returns whether a comment, other than an optimizer hint, starts at {@code start}.
+     *
+     * @param query the query to scan.
+     * @param start the index at which the comment may start.
+     * @return {@code true} if a comment starts at the index.
+     */
+    private static boolean isComment(String query, int start) {
+        return query.startsWith("--", start)
+            || (query.startsWith(BLOCK_COMMENT_START, start) && !query.startsWith("/*+", start));
+    }
+
+    /**
+     * Returns the index just past the comment that starts at {@code start}. An unterminated comment extends to the end
+     * of the query.
+     *
+     * @param query the query to scan.
+     * @param start the index at which the comment starts.
+     * @return the index just past the comment.
+     */
+    private static int endOfComment(String query, int start) {
+        if (query.charAt(start) == '-') {
+            return indexAfter(query, "\n", start + 2);
+        }
+
+        return indexAfter(query, BLOCK_COMMENT_END, start + 2);
+    }
+
+    /**
+     * Returns the index just past the quoted identifier or optimizer hint that starts at {@code start}, or the index
+     * of the next character if no such section starts there. An unterminated section extends to the end of the query.
+     *
+     * @param query the query to scan.
+     * @param start the index at which the section may start.
+     * @return the index just past the section.
+     */
+    private static int endOfQuoted(String query, int start) {
+        char c = query.charAt(start);
+        if (c == '"' || c == '`') {
+            return indexAfter(query, String.valueOf(c), start + 1);
+        } else if (c == '[') {
+            return indexAfter(query, "]", start + 1);
+        } else if (query.startsWith(BLOCK_COMMENT_START, start)) {
+            return indexAfter(query, BLOCK_COMMENT_END, start + 2);
+        }
+
+        return start + 1;
+    }
+
+    /**
+     * Returns the index just past the first occurrence of {@code terminator} at or after {@code from}.
+     *
+     * @param query the query to scan.
+     * @param terminator the string that ends the section.
+     * @param from the index at which to start searching.
+     * @return the index just past the terminator, or the length of {@code query} if it does not occur.
+     */
+    private static int indexAfter(String query, String terminator, int from) {
+        int index = query.indexOf(terminator, from);
+        if (index < 0) {
+            return query.length();
+        }
+
+        return index + terminator.length();
+    }
+
+    /**
+     * Returns whether the given character is a token that needs no whitespace around it.
+     *
+     * @param c the character to check.
+     * @return {@code true} if whitespace around the character can be removed.
+     */
+    private static boolean isTight(char c) {
+        return c == '(' || c == ')' || c == ',';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof QueryFingerprint)) {
+            return false;
+        }
+        return key.equals(((QueryFingerprint) o).key);
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
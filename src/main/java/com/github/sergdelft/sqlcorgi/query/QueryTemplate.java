@@ -0,0 +1,397 @@
+package com.github.sergdelft.sqlcorgi.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A query from which the literals have been lifted. Each numeric and string literal is replaced by a sentinel literal
+ * of the same kind, which only depends on the position of the literal in the query. Queries that only differ in their
+ * literals therefore share the same template text, and the rules generated for that text can be bound to the literals
+ * of each individual query.
+ * <p>
+ * Since the sentinels are literals themselves, the template text parses to the same structure as the original query.
+ * The sentinels are spaced such that the off-by-one boundary values derived from them can be recognized in generated
+ * rules, and are recomputed from the bound literal when the rule is bound.
+ * <p>
+ * Only literals whose text is already in the canonical form in which rules render them are lifted, so that a bound
+ * rule is identical to the rule that would have been generated for the original query.
+ */
+public final class QueryTemplate {
+
+    private static final long LONG_BASE = 4_000_000_000_000_000_000L;
+    private static final double DOUBLE_BASE = 2.0E15;
+    private static final int SPACING = 4;
+    private static final String STRING_PREFIX = "'__corgi_s";
+    private static final String STRING_SUFFIX = "__'";
+    private static final String RESERVED_MARKER = "__corgi_";
+    private static final int MAX_CANONICAL_LONG_DIGITS = 18;
+
+    private static final Pattern SENTINEL = Pattern.compile(
+        "'__corgi_s(?<string>\\d+)__'"
+            + "|(?<![\\w.$])(?<long>\\d{19,})(?![\\w.])"
+            + "|(?<![\\w.$])(?<double>\\d\\.\\d+E15)(?![\\w.])"
+    );
+
+    private final String text;
+    private final List<Literal> literals;
+
+    /**
+     * Creates a template.
+     *
+     * @param text the text of the query, in which the literals have been replaced by sentinels.
+     * @param literals the literals that have been lifted, in order of their position in the query.
+     */
+    private QueryTemplate(String text, List<Literal> literals) {
+        this.text = text;
+        this.literals = literals;
+    }
+
+    /**
+     * Lifts the literals out of the given query.
+     *
+     * @param query the query to lift the literals from.
+     * @return the template of the query, or {@code null} if the query contains constructs for which a bound rule could
+     *         differ from a rule generated for the original query.
+     */
+    public static QueryTemplate lift(String query) {
+        if (query.contains(RESERVED_MARKER) || SENTINEL.matcher(query).find()) {
+            return null;
+        }
+
+        StringBuilder builder = new StringBuilder(query.length());
+        List<Literal> literals = new ArrayList<>();
+        int selects = 0;
+
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            int end;
+
+            if (c == '\'') {
+                end = endOfString(query, i);
+                if (end < 0) {
+                    return null;
+                }
+                if (i > 0 && isWordPart(query.charAt(i - 1))) {
+                    builder.append(query, i, end);
+                } else {
+                    builder.append(STRING_PREFIX).append(literals.size()).append(STRING_SUFFIX);
+                    literals.add(new Literal(LiteralType.STRING, query.substring(i, end)));
+                }
+            } else if (Character.isDigit(c) && (i == 0 || isNumberBoundary(query.charAt(i - 1)))) {
+                end = endOfNumber(query, i);
+                liftNumber(query.substring(i, end), end < query.length() ? query.charAt(end) : ' ', builder,
+                    literals);
+            } else if (Character.isLetter(c) || c == '_') {
+                end = i + 1;
+                while (end < query.length() && isWordPart(query.charAt(end))) {
+                    end++;
+                }
+                if ("SELECT".equals(query.substring(i, end).toUpperCase(Locale.ROOT))) {
+                    selects++;
+                }
+                builder.append(query, i, end);
+            } else {
+                end = endOfQuoted(query, i);
+                builder.append(query, i, end);
+            }
+
+            i = end;
+        }
+
+        // Subqueries are identified by their text, so equal subqueries must not become distinct in the template.
+        if (selects > 1 && new HashSet<>(literals).size() < literals.size()) {
+            return null;
+        }
+
+        return new QueryTemplate(builder.toString(), literals);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public int getLiteralCount() {
+        return literals.size();
+    }
+
+    /**
+     * Binds the literals of the original query to each of the given rules.
+     *
+     * @param rules rules that have been generated for the text of this template.
+     * @return the rules for the original query.
+     */
+    public Set<String> bind(Collection<String> rules) {
+        Set<String> result = new HashSet<>();
+        for (String rule : rules) {
+            result.add(bind(rule));
+        }
+
+        return result;
+    }
+
+    /**
+     * Binds the literals of the original query to the given rule. Sentinels that have been shifted by one are bound
+     * to the literal shifted by the same amount.
+     *
+     * @param rule a rule that has been generated for the text of this template.
+     * @return the rule for the original query.
+     */
+    public String bind(String rule) {
+        Matcher matcher = SENTINEL.matcher(rule);
+        StringBuilder builder = new StringBuilder(rule.length());
+
+        int last = 0;
+        while (matcher.find()) {
+            builder.append(rule, last, matcher.start());
+            String string = matcher.group("string");
+            String number = matcher.group("long");
+            if (string != null) {
+                builder.append(getLiteral(Integer.parseInt(string), LiteralType.STRING).text);
+            } else if (number != null) {
+                long relative = Long.parseLong(number) - LONG_BASE + 1;
+                Literal literal = getLiteral((int) (relative / SPACING), LiteralType.LONG);
+                builder.append(literal.shift((int) (relative % SPACING) - 1));
+            } else {
+                long relative = (long) (Double.parseDouble(matcher.group("double")) - DOUBLE_BASE + 1);
+                Literal literal = getLiteral((int) (relative / SPACING), LiteralType.DOUBLE);
+                builder.append(literal.shift((int) (relative % SPACING) - 1));
+            }
+            last = matcher.end();
+        }
+        builder.append(rule, last, rule.length());
+
+        return builder.toString();
+    }
+
+    /**
+     * Returns the lifted literal with the given index.
+     *
+     * @param index the index of the literal.
+     * @param type the type the literal is expected to have.
+     * @return the literal.
+     */
+    private Literal getLiteral(int index, LiteralType type) {
+        if (index < 0 || index >= literals.size() || literals.get(index).type != type) {
+            throw new IllegalStateException("The rule contains an unknown sentinel for literal " + index + ".");
+        }
+
+        return literals.get(index);
+    }
+
+    /**
+     * Appends the given numeric literal to the template, replacing it by a sentinel if it can be lifted.
+     *
+     * @param number the text of the numeric literal.
+     * @param next the character following the literal.
+     * @param builder the template text built so far.
+     * @param literals the literals lifted so far.
+     */
+    private static void liftNumber(String number, char next, StringBuilder builder, List<Literal> literals) {
+        if (isWordPart(next) || next == '.') {
+            builder.append(number);
+            return;
+        }
+
+        boolean isDouble = number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0;
+        if (isDouble && Double.toString(Double.parseDouble(number)).equals(number)) {
+            builder.append(Double.toString(DOUBLE_BASE + SPACING * literals.size()));
+            literals.add(new Literal(LiteralType.DOUBLE, number));
+        } else if (!isDouble && number.length() <= MAX_CANONICAL_LONG_DIGITS
+                && Long.toString(Long.parseLong(number)).equals(number)) {
+            builder.append(LONG_BASE + SPACING * literals.size());
+            literals.add(new Literal(LiteralType.LONG, number));
+        } else {
+            builder.append(number);
+        }
+    }
+
+    /**
+     * Returns the index just past the string literal that starts at {@code start}.
+     *
+     * @param query the query to scan.
+     * @param start the index of the opening quote.
+     * @return the index just past the closing quote, or -1 if the literal is not terminated or contains escape
+     *         sequences other than doubled quotes.
+     */
+    private static int endOfString(String query, int start) {
+        int i = start + 1;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (c == '\\') {
+                return -1;
+            }
+            if (c == '\'') {
+                if (i + 1 < query.length() && query.charAt(i + 1) == '\'') {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the index just past the numeric literal that starts at {@code start}.
+     *
+     * @param query the query to scan.
+     * @param start the index of the first digit.
+     * @return the index just past the literal.
+     */
+    static int endOfNumber(String query, int start) {
+        int i = skipDigits(query, start);
+        if (i + 1 < query.length() && query.charAt(i) == '.' && Character.isDigit(query.charAt(i + 1))) {
+            i = skipDigits(query, i + 1);
+        }
+        if (i + 1 < query.length() && (query.charAt(i) == 'e' || query.charAt(i) == 'E')) {
+            int exponent = i + 1;
+            if (query.charAt(exponent) == '+' || query.charAt(exponent) == '-') {
+                exponent++;
+            }
+            if (exponent < query.length() && Character.isDigit(query.charAt(exponent))) {
+                i = skipDigits(query, exponent);
+            }
+        }
+
+        return i;
+    }
+
+    /**
+     * Returns the index of the first character at or after {@code from} that is not a digit.
+     *
+     * @param query the query to scan.
+     * @param from the index at which to start.
+     * @return the index of the first non-digit.
+     */
+    private static int skipDigits(String query, int from) {
+        int i = from;
+        while (i < query.length() && Character.isDigit(query.charAt(i))) {
+            i++;
+        }
+
+        return i;
+    }
+
+    /**
+     * Returns the index just past the quoted identifier or comment that starts at {@code start}, or the index of the
+     * next character if no such section starts there.
+     *
+     * @param query the query to scan.
+     * @param start the index at which the section may start.
+     * @return the index just past the section.
+     */
+    private static int endOfQuoted(String query, int start) {
+        char c = query.charAt(start);
+        String terminator;
+        int from = start + 1;
+        if (c == '"' || c == '`') {
+            terminator = String.valueOf(c);
+        } else if (c == '[') {
+            terminator = "]";
+        } else if (query.startsWith("--", start)) {
+            terminator = "\n";
+        } else if (query.startsWith("/*", start)) {
+            terminator = "*/";
+            from++;
+        } else {
+            return start + 1;
+        }
+
+        int index = query.indexOf(terminator, from);
+        return index < 0 ? query.length() : index + terminator.length();
+    }
+
+    /**
+     * Returns whether the given character can be part of an identifier or keyword.
+     *
+     * @param c the character to check.
+     * @return {@code true} if the character can be part of a word.
+     */
+    static boolean isWordPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    /**
+     * Returns whether a numeric literal can start after the given character.
+     *
+     * @param previous the character preceding the literal.
+     * @return {@code true} if a numeric literal can start after the character.
+     */
+    static boolean isNumberBoundary(char previous) {
+        return !isWordPart(previous) && previous != '.' && previous != ':' && previous != '@' && previous != '?'
+            && previous != '#';
+    }
+
+    /**
+     * The kinds of literals that are lifted.
+     */
+    private enum LiteralType {
+        LONG,
+        DOUBLE,
+        STRING
+    }
+
+    /**
+     * A literal that has been lifted out of a query.
+     */
+    private static final class Literal {
+
+        private final LiteralType type;
+        private final String text;
+
+        /**
+         * Creates a literal.
+         *
+         * @param type the kind of literal.
+         * @param text the text of the literal, as it appears in the query.
+         */
+        Literal(LiteralType type, String text) {
+            this.type = type;
+            this.text = text;
+        }
+
+        /**
+         * Renders this literal shifted by the given offset, in the same way as {@link NumericValue#add(int)}.
+         *
+         * @param offset the offset to add.
+         * @return the text of the shifted literal.
+         */
+        String shift(int offset) {
+            if (offset == 0) {
+                return text;
+            }
+            if (type == LiteralType.LONG) {
+                return new NumericLongValue(text).add(offset).toString();
+            }
+
+            return new NumericDoubleValue(text).add(offset).toString();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Literal)) {
+                return false;
+            }
+            Literal literal = (Literal) o;
+            return type == literal.type && text.equals(literal.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, text);
+        }
+    }
+}
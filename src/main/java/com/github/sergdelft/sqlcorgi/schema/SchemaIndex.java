@@ -0,0 +1,146 @@
+package com.github.sergdelft.sqlcorgi.schema;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * A read-only snapshot of a {@link Schema} that allows tables and columns to be looked up without scanning. An index
+ * is built once and can then be shared by any number of {@link TableStructure}s, also across threads.
+ * <p>
+ * The index does not observe changes that are made to the schema, or to its tables, after it has been built.
+ */
+public final class SchemaIndex {
+
+    private final Schema schema;
+    private final Map<String, Table> tables;
+    private final Map<Table, Map<String, List<Column>>> columns;
+    private final Map<Table, List<Column>> orderedColumns;
+    private volatile Long fingerprint;
+
+    /**
+     * Builds an index for the given schema.
+     *
+     * @param schema the schema to index. It must not be null.
+     */
+    public SchemaIndex(Schema schema) {
+        if (schema == null) {
+            throw new IllegalArgumentException("The schema to index must not be null.");
+        }
+
+        this.schema = schema;
+        this.tables = new HashMap<>(schema.getTables());
+        this.columns = new IdentityHashMap<>(tables.size());
+        this.orderedColumns = new IdentityHashMap<>(tables.size());
+
+        for (Table table : tables.values()) {
+            Map<String, List<Column>> tableColumns = new HashMap<>();
+            for (Column column : table.getColumns()) {
+                tableColumns.computeIfAbsent(column.getName(), name -> new ArrayList<>(1)).add(column);
+            }
+            columns.put(table, tableColumns);
+            orderedColumns.put(table, new ArrayList<>(table.getColumns()));
+        }
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Returns a fingerprint of the indexed schema. Schemas with the same tables and columns, in terms of their names,
+     * nullability, keys and data types, have the same fingerprint, regardless of the order in which their tables were
+     * added.
+     * <p>
+     * The fingerprint is only computed the first time it is requested, since it is only needed to cache rules.
+     *
+     * @return the fingerprint of the schema.
+     */
+    public long getFingerprint() {
+        Long result = fingerprint;
+        if (result == null) {
+            // Threads that request the fingerprint at the same time may both compute it, to the same value.
+            result = computeFingerprint(tables, orderedColumns::get);
+            fingerprint = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Computes the fingerprint of the given schema, without indexing it. The fingerprint is the same as that of an
+     * index built for the schema in its current state.
+     *
+     * @param schema the schema to compute the fingerprint of. It must not be null.
+     * @return the fingerprint of the schema.
+     * @see #getFingerprint()
+     */
+    public static long fingerprintOf(Schema schema) {
+        return computeFingerprint(schema.getTables(), Table::getColumns);
+    }
+
+    /**
+     * Returns the table with the given name.
+     *
+     * @param name the unquoted name of the table.
+     * @return the table, or {@code null} if the schema contains no table with the given name.
+     */
+    public Table getTable(String name) {
+        return tables.get(name);
+    }
+
+    /**
+     * Returns all columns of {@code table} with the given name.
+     *
+     * @param table a table of the indexed schema.
+     * @param name the unquoted name of the column.
+     * @return the matching columns, which is an empty list if there are none, or {@code null} if {@code table} is not
+     *         part of the indexed schema.
+     */
+    public List<Column> getColumns(Table table, String name) {
+        Map<String, List<Column>> tableColumns = columns.get(table);
+        if (tableColumns == null) {
+            return null;
+        }
+
+        return tableColumns.getOrDefault(name, Collections.emptyList());
+    }
+
+    /**
+     * Computes the fingerprint of the given tables, which consists of the first 8 bytes of the SHA-256 digest of a
+     * canonical description of the tables.
+     *
+     * @param tables the tables of the schema, by name.
+     * @param columnsOf the columns of a table, in the order in which they were added.
+     * @return the fingerprint.
+     */
+    private static long computeFingerprint(Map<String, Table> tables, Function<Table, List<Column>> columnsOf) {
+        StringBuilder description = new StringBuilder();
+        for (Map.Entry<String, Table> entry : new TreeMap<>(tables).entrySet()) {
+            description.append(entry.getKey()).append('(');
+            for (Column column : columnsOf.apply(entry.getValue())) {
+                description.append(column.getName()).append(' ')
+                    .append(column.getDataType()).append(' ')
+                    .append(column.isNullable()).append(' ')
+                    .append(column.isKey()).append(',');
+            }
+            description.append(')');
+        }
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return ByteBuffer.wrap(digest.digest(description.toString().getBytes(StandardCharsets.UTF_8))).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this platform.", e);
+        }
+    }
+}
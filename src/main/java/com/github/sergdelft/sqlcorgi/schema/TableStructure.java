@@ -16,9 +16,32 @@ import java.util.regex.Pattern;
  */
 public class TableStructure {
 
+    private static final Pattern DOUBLE_QUOTES = Pattern.compile("\"(.*)\"");
+    private static final Pattern BACK_TICKS = Pattern.compile("`(.*)`");
+    private static final Pattern BRACKETS = Pattern.compile("\\[(.*)]");
+
     private Schema schema;
+    private SchemaIndex schemaIndex;
     private Deque<Map<String, Table>> tableStack = new LinkedList<>();
 
+    /**
+     * Creates a table structure without a schema. Use {@link #setSchema(Schema)} to provide one.
+     */
+    public TableStructure() {
+        // No schema is set, so all attributes are assumed to not be nullable.
+    }
+
+    /**
+     * Creates a table structure that looks up tables and columns using the given {@link SchemaIndex}, instead of
+     * scanning the schema itself.
+     *
+     * @param schemaIndex the index of the schema to use. It must not be null.
+     */
+    public TableStructure(SchemaIndex schemaIndex) {
+        this.schema = schemaIndex.getSchema();
+        this.schemaIndex = schemaIndex;
+    }
+
     public Schema getSchema() {
         return schema;
     }
@@ -40,15 +63,24 @@ public class TableStructure {
         HashMap<String, Table> tables = new HashMap<>();
         tableStack.push(tables);
 
-        Table left = deriveFromItem(fromItem, true);
+        // If the layer cannot be derived, it is discarded, so that the structure can still be reused afterwards.
+        boolean derived = false;
+        try {
+            Table left = deriveFromItem(fromItem, true);
 
-        if (joins != null) {
-            for (Join join : joins) {
-                left = deriveJoinTable(left, join, true);
+            if (joins != null) {
+                for (Join join : joins) {
+                    left = deriveJoinTable(left, join, true);
+                }
             }
-        }
 
-        tables.put("", left);
+            tables.put("", left);
+            derived = true;
+        } finally {
+            if (!derived) {
+                tableStack.pop();
+            }
+        }
     }
 
     /**
@@ -109,27 +141,18 @@ public class TableStructure {
                 if (table == null) {
                     throw new UnknownTableException("Could not find the following table: " + tableName);
                 }
-                for (Column temp : table.getColumns()) {
-                    if (colName.equals(temp.getName())) {
-                        if (result != null) {
-                            throw new AmbiguousColumnException(colName);
-                        }
-                        result = temp;
+                Column found = findColumn(table, colName);
+                if (found != null) {
+                    if (result != null) {
+                        throw new AmbiguousColumnException(colName);
                     }
+                    result = found;
                 }
             } else {
                 Table foundTable = null;
                 for (Map.Entry<String, Table> table : tableMap.entrySet()) {
 
-                    Column found = null;
-                    for (Column temp : table.getValue().getColumns()) {
-                        if (colName.equals(temp.getName())) {
-                            if (found != null) {
-                                throw new AmbiguousColumnException(colName);
-                            }
-                            found = temp;
-                        }
-                    }
+                    Column found = findColumn(table.getValue(), colName);
 
                     if (result != null && found != null) {
                         if (foundTable != null) {
@@ -151,6 +174,38 @@ public class TableStructure {
         throw new UnknownColumnException("The following column could not be found: " + column);
     }
 
+    /**
+     * Returns the column of {@code table} with the given name. The {@link SchemaIndex} is used if the table is part of
+     * it, otherwise the columns of the table are scanned.
+     *
+     * @param table the table to search.
+     * @param colName the unquoted name of the column.
+     * @return the column, or {@code null} if {@code table} has no column with the given name.
+     * @throws AmbiguousColumnException if {@code table} has multiple columns with the given name.
+     */
+    private Column findColumn(Table table, String colName) throws AmbiguousColumnException {
+
+        List<Column> candidates = schemaIndex == null ? null : schemaIndex.getColumns(table, colName);
+        if (candidates != null) {
+            if (candidates.size() > 1) {
+                throw new AmbiguousColumnException(colName);
+            }
+            return candidates.isEmpty() ? null : candidates.get(0);
+        }
+
+        Column found = null;
+        for (Column temp : table.getColumns()) {
+            if (colName.equals(temp.getName())) {
+                if (found != null) {
+                    throw new AmbiguousColumnException(colName);
+                }
+                found = temp;
+            }
+        }
+
+        return found;
+    }
+
     /**
      * Extracts the identifier from the given name. Supported delimiters are: {@code [ ]}, {@code ` `} and {@code " "}.
      *
@@ -158,15 +213,11 @@ public class TableStructure {
      * @return if the original string was surrounded by delimiters, returns the name without delimiters, otherwise
      *         the original string is returned.
      */
-    private String getIdentifier(String name) {
-
-        Pattern doubleQuotes = Pattern.compile("\"(.*)\"");
-        Pattern backTicks = Pattern.compile("`(.*)`");
-        Pattern brackets = Pattern.compile("\\[(.*)]");
+    private static String getIdentifier(String name) {
 
-        Matcher mDoubleQuotes = doubleQuotes.matcher(name);
-        Matcher mBrackets = brackets.matcher(name);
-        Matcher mBackTicks = backTicks.matcher(name);
+        Matcher mDoubleQuotes = DOUBLE_QUOTES.matcher(name);
+        Matcher mBrackets = BRACKETS.matcher(name);
+        Matcher mBackTicks = BACK_TICKS.matcher(name);
 
         if (mDoubleQuotes.find()) {
             return mDoubleQuotes.group(1);
@@ -207,6 +258,22 @@ public class TableStructure {
 
     public void setSchema(Schema schema) {
         this.schema = schema;
+        this.schemaIndex = null;
+    }
+
+    /**
+     * Creates a new table structure without any layers, which uses the same schema as this one.
+     *
+     * @return an empty table structure for the schema of this one.
+     */
+    public TableStructure emptyCopy() {
+        if (schemaIndex != null) {
+            return new TableStructure(schemaIndex);
+        }
+
+        TableStructure tableStructure = new TableStructure();
+        tableStructure.setSchema(schema);
+        return tableStructure;
     }
 
     /**
@@ -225,7 +292,7 @@ public class TableStructure {
 
         if (fromItem instanceof net.sf.jsqlparser.schema.Table) {
             String name = getIdentifier(((net.sf.jsqlparser.schema.Table) fromItem).getName());
-            Table table = schema.getTable(name);
+            Table table = schemaIndex == null ? schema.getTable(name) : schemaIndex.getTable(name);
 
             if (table == null) {
                 throw new UnknownTableException("The following table cannot be found in the schema: " + name);
@@ -361,8 +428,7 @@ public class TableStructure {
         FromItem fromItem = select.getFromItem();
         List<Join> joins = select.getJoins();
 
-        TableStructure tableStructure = new TableStructure();
-        tableStructure.setSchema(schema);
+        TableStructure tableStructure = emptyCopy();
         tableStructure.addLayer(fromItem, joins);
         for (SelectItem selectItem : selectItems) {
 
@@ -73,12 +73,12 @@ public class TypeChecker implements ExpressionVisitor {
 
     @Override
     public void visit(JdbcParameter jdbcParameter) {
-
+        // The type of a parameter is only known once it is bound, so it is left undetermined.
     }
 
     @Override
     public void visit(JdbcNamedParameter jdbcNamedParameter) {
-
+        // The type of a parameter is only known once it is bound, so it is left undetermined.
     }
 
     @Override
@@ -1,5 +1,6 @@
 package com.github.sergdelft.sqlcorgi.util;
 
+import com.github.sergdelft.sqlcorgi.util.cloner.LeafInterner;
 import net.sf.jsqlparser.expression.DoubleValue;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.Function;
@@ -34,6 +35,20 @@ public final class AggregateComponentFactory {
         return greaterThan;
     }
 
+    /**
+     * Generates a `__ GREATER THAN 1` expression, in which the `1` is interned.
+     *
+     * @param expr expression to fill in the __
+     * @param leaves the interner of the `1`
+     * @return `expr GREATER THAN 1` object
+     */
+    public static GreaterThan createGreaterThanOne(Expression expr, LeafInterner leaves) {
+        GreaterThan greaterThan = createGreaterThanOne(expr);
+        greaterThan.setRightExpression(leaves.intern(greaterThan.getRightExpression()));
+
+        return greaterThan;
+    }
+
     /**
      * Generates a COUNT(*) object.
      *
@@ -47,6 +62,16 @@ public final class AggregateComponentFactory {
         return count;
     }
 
+    /**
+     * Generates an interned COUNT(*) object, which must not be modified.
+     *
+     * @param leaves the interner of the COUNT(*) object
+     * @return a COUNT(*) object
+     */
+    public static Function createCountAllColumns(LeafInterner leaves) {
+        return (Function) leaves.intern(createCountAllColumns());
+    }
+
     /**
      * Generates a COUNT(DISTINCT __) object.
      *
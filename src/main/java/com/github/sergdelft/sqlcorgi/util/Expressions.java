@@ -1,6 +1,7 @@
 package com.github.sergdelft.sqlcorgi.util;
 
 import com.github.sergdelft.sqlcorgi.util.cloner.ExpressionCloner;
+import com.github.sergdelft.sqlcorgi.util.cloner.LeafInterner;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
 import net.sf.jsqlparser.statement.select.Join;
@@ -32,6 +33,23 @@ public final class Expressions {
         return equalsExpression;
     }
 
+    /**
+     * Creates an {@link EqualsTo} instance. The supplied left and right expressions are copied, sharing their leaves
+     * with the other expressions that use {@code leaves}.
+     *
+     * @param leftExpression the left side of the expression.
+     * @param rightExpression the right side of the expression.
+     * @param leaves the interner of the leaves of the copies.
+     * @return a new {@link EqualsTo} expression.
+     */
+    public static EqualsTo createEqualsTo(Expression leftExpression, Expression rightExpression, LeafInterner leaves) {
+        EqualsTo equalsExpression = new EqualsTo();
+        equalsExpression.setLeftExpression(ExpressionCloner.copy(leftExpression, leaves));
+        equalsExpression.setRightExpression(ExpressionCloner.copy(rightExpression, leaves));
+
+        return equalsExpression;
+    }
+
     /**
      * Changes the given {@link Join} to an inner join.
      *
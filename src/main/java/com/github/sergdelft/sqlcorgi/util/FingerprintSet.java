@@ -0,0 +1,113 @@
+package com.github.sergdelft.sqlcorgi.util;
+
+/**
+ * A set of texts that only stores a 128-bit fingerprint of each text, instead of the text itself. It is used to
+ * deduplicate rules while they are generated and while they are streamed: the text of a rule can be several kilobytes
+ * long, while its fingerprint always takes up 16 bytes.
+ * <p>
+ * The fingerprint of a text consists of two independent 64-bit hashes of its characters, and is computed in a single
+ * pass, without copying the text. The fingerprints are stored in two arrays of {@code long}s, so no object is created
+ * for an element. The arrays are at most three quarters full, and double in size when they are.
+ * <p>
+ * Two different texts may have the same fingerprint, in which case the second is taken for a duplicate. With 128-bit
+ * fingerprints, the probability of that is below 10<sup>-20</sup> for a billion texts. A set is not thread-safe.
+ */
+public final class FingerprintSet {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final double MAX_LOAD = 0.75;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final long MIX_MULTIPLIER = 0xbf58476d1ce4e5b9L;
+    private static final int MIX_SHIFT = 31;
+
+    private long[] high = new long[INITIAL_CAPACITY];
+    private long[] low = new long[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Adds a text to the set, unless a text with the same fingerprint has been added before.
+     *
+     * @param text the text to add.
+     * @return {@code true} if the text was added, or {@code false} if it is a duplicate.
+     */
+    public boolean add(CharSequence text) {
+        long h1 = FNV_OFFSET_BASIS;
+        long h2 = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            h1 = (h1 ^ c) * FNV_PRIME;
+            h2 = mix(h2 + c + GOLDEN_GAMMA);
+        }
+
+        // An empty slot is marked by a fingerprint of zero, so that fingerprint is moved elsewhere.
+        if (h1 == 0 && h2 == 0) {
+            h2 = 1;
+        }
+
+        if (!insert(h1, h2)) {
+            return false;
+        }
+
+        size++;
+        if (size > high.length * MAX_LOAD) {
+            resize();
+        }
+
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Inserts a fingerprint into the arrays, unless it is already present.
+     *
+     * @param h1 the first half of the fingerprint.
+     * @param h2 the second half of the fingerprint.
+     * @return {@code true} if the fingerprint was inserted, or {@code false} if it was already present.
+     */
+    private boolean insert(long h1, long h2) {
+        int mask = high.length - 1;
+        int slot = (int) (h1 ^ h1 >>> MIX_SHIFT) & mask;
+        while (high[slot] != 0 || low[slot] != 0) {
+            if (high[slot] == h1 && low[slot] == h2) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        high[slot] = h1;
+        low[slot] = h2;
+        return true;
+    }
+
+    /**
+     * Doubles the size of the arrays, and inserts all fingerprints again.
+     */
+    private void resize() {
+        long[] oldHigh = high;
+        long[] oldLow = low;
+        high = new long[oldHigh.length * 2];
+        low = new long[oldLow.length * 2];
+
+        for (int i = 0; i < oldHigh.length; i++) {
+            if (oldHigh[i] != 0 || oldLow[i] != 0) {
+                insert(oldHigh[i], oldLow[i]);
+            }
+        }
+    }
+
+    /**
+     * Scrambles the bits of a hash, so that every input bit affects every output bit.
+     *
+     * @param h the hash to scramble.
+     * @return the scrambled hash.
+     */
+    private static long mix(long h) {
+        long z = (h ^ h >>> MIX_SHIFT) * MIX_MULTIPLIER;
+        return z ^ z >>> MIX_SHIFT;
+    }
+}
@@ -0,0 +1,186 @@
+package com.github.sergdelft.sqlcorgi.util;
+
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParser;
+import net.sf.jsqlparser.parser.CCJSqlParserTokenManager;
+import net.sf.jsqlparser.parser.SimpleCharStream;
+import net.sf.jsqlparser.parser.StringProvider;
+import net.sf.jsqlparser.parser.Token;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.Statements;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Parses SQL with a parser that is reused across calls. {@link net.sf.jsqlparser.parser.CCJSqlParserUtil} creates a
+ * new parser, token manager and character buffer for every statement. Instead, each thread keeps a single parser
+ * here, which is reinitialized for every input, so that batches of queries do not pay for setting up a parser over and
+ * over again.
+ * <p>
+ * The methods behave like their counterparts in {@link net.sf.jsqlparser.parser.CCJSqlParserUtil}.
+ */
+public final class Parsers {
+
+    private static final ThreadLocal<CCJSqlParser> PARSER = new ThreadLocal<>();
+
+    private static final BooleanSupplier NEVER = () -> false;
+
+    /**
+     * No instances of this class can be created.
+     */
+    private Parsers() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Parses a single statement.
+     *
+     * @param sql the statement to parse.
+     * @return the parsed statement.
+     * @throws JSQLParserException if the statement cannot be parsed.
+     */
+    // Justification: the parser reports errors through several unchecked exceptions, which are all wrapped, in the
+    // same way as CCJSqlParserUtil does.
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    public static Statement parse(String sql) throws JSQLParserException {
+        CCJSqlParser parser = acquire(sql);
+        try {
+            return parser.Statement();
+        } catch (Exception e) {
+            PARSER.remove();
+            throw new JSQLParserException(e);
+        }
+    }
+
+    /**
+     * Parses a single statement on the calling thread, giving up once the given timeout has expired.
+     *
+     * @param sql the statement to parse.
+     * @param timeout the maximum time to spend on the parse. Must be positive.
+     * @return the parsed statement.
+     * @throws JSQLParserException if the statement cannot be parsed.
+     * @throws TimeoutException if the statement has not been parsed within the timeout.
+     * @see #parse(String, BooleanSupplier)
+     */
+    public static Statement parse(String sql, Duration timeout) throws JSQLParserException, TimeoutException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        return parse(sql, () -> System.nanoTime() - deadline > 0);
+    }
+
+    /**
+     * Parses a single statement on the calling thread, giving up as soon as {@code expired} returns {@code true}. The
+     * parser cannot be interrupted, so the condition is checked each time the parser reads a token it has not read
+     * before. While the parser backtracks over tokens it has already read, the condition is not checked.
+     *
+     * @param sql the statement to parse.
+     * @param expired the condition under which the parse is abandoned. It is evaluated for every token, so it should
+     *                be cheap.
+     * @return the parsed statement.
+     * @throws JSQLParserException if the statement cannot be parsed.
+     * @throws TimeoutException if the parse has been abandoned.
+     */
+    // Justification: the parser reports errors through several unchecked exceptions, which are all wrapped, in the
+    // same way as CCJSqlParserUtil does.
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    public static Statement parse(String sql, BooleanSupplier expired) throws JSQLParserException, TimeoutException {
+        CCJSqlParser parser = acquire(sql);
+        DeadlineTokenManager tokenManager = (DeadlineTokenManager) parser.token_source;
+        tokenManager.expired = expired;
+        try {
+            return parser.Statement();
+        } catch (ParseExpiredException e) {
+            PARSER.remove();
+            throw new TimeoutException("The parse has been abandoned.");
+        } catch (Exception e) {
+            PARSER.remove();
+            throw new JSQLParserException(e);
+        } finally {
+            tokenManager.expired = NEVER;
+        }
+    }
+
+    /**
+     * Parses a script consisting of any number of statements.
+     *
+     * @param sql the statements to parse.
+     * @return the parsed statements.
+     * @throws JSQLParserException if the statements cannot be parsed.
+     */
+    // Justification: the parser reports errors through several unchecked exceptions, which are all wrapped, in the
+    // same way as CCJSqlParserUtil does.
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    public static Statements parseStatements(String sql) throws JSQLParserException {
+        CCJSqlParser parser = acquire(sql);
+        try {
+            return parser.Statements();
+        } catch (Exception e) {
+            PARSER.remove();
+            throw new JSQLParserException(e);
+        }
+    }
+
+    /**
+     * Returns the parser of the current thread, reinitialized to read the given input. A parser that failed is
+     * discarded rather than reused, so that no state of a failed parse can leak into the next one.
+     *
+     * @param sql the input for the parser.
+     * @return a parser for {@code sql}.
+     */
+    private static CCJSqlParser acquire(String sql) {
+        StringProvider input = new StringProvider(sql);
+
+        CCJSqlParser parser = PARSER.get();
+        if (parser == null) {
+            parser = new CCJSqlParser(new DeadlineTokenManager(new SimpleCharStream(input)));
+            PARSER.set(parser);
+        } else {
+            parser.ReInit(input);
+        }
+
+        return parser;
+    }
+
+    /**
+     * A token manager that checks whether the parse has expired before it reads each token. Reinitializing the parser
+     * for another input keeps its token manager.
+     */
+    private static final class DeadlineTokenManager extends CCJSqlParserTokenManager {
+
+        private BooleanSupplier expired = NEVER;
+
+        /**
+         * Creates a token manager that reads from the given stream.
+         *
+         * @param stream the stream to read tokens from.
+         */
+        DeadlineTokenManager(SimpleCharStream stream) {
+            super(stream);
+        }
+
+        @Override
+        public Token getNextToken() {
+            if (expired.getAsBoolean()) {
+                throw new ParseExpiredException();
+            }
+
+            return super.getNextToken();
+        }
+    }
+
+    /**
+     * Thrown by the token manager to abandon a parse that has expired. The stack trace is not recorded.
+     */
+    private static final class ParseExpiredException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Creates the exception.
+         */
+        ParseExpiredException() {
+            super(null, null, false, false);
+        }
+    }
+}
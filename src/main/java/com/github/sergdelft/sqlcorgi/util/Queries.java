@@ -0,0 +1,202 @@
+package com.github.sergdelft.sqlcorgi.util;
+
+import com.github.sergdelft.sqlcorgi.exceptions.UnsupportedInputException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Provides utility functions for the text of queries.
+ */
+public final class Queries {
+
+    /**
+     * No instances of this class can be created.
+     */
+    private Queries() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Normalizes the text of a query, such that queries that only differ in their layout have the same normal form.
+     * Leading and trailing whitespace is removed and every other run of whitespace is replaced by a single space.
+     * Quoted literals and identifiers, as well as comments, are left untouched.
+     *
+     * @param query the query to normalize.
+     * @return the normalized query.
+     */
+    public static String normalize(String query) {
+        String trimmed = query.trim();
+        StringBuilder builder = new StringBuilder(trimmed.length());
+
+        int i = 0;
+        while (i < trimmed.length()) {
+            char c = trimmed.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                while (i < trimmed.length() && Character.isWhitespace(trimmed.charAt(i))) {
+                    i++;
+                }
+                builder.append(' ');
+                continue;
+            }
+
+            int end = skipQuoted(trimmed, i);
+            builder.append(trimmed, i, end);
+            i = end;
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Returns the maximum nesting depth of the parentheses in a query. Parentheses in quoted sections and comments are
+     * not counted.
+     *
+     * @param query the query to scan.
+     * @return the maximum number of parentheses that are open at the same time.
+     */
+    public static int nestingDepth(String query) {
+        int depth = 0;
+        int maxDepth = 0;
+
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (c == '(') {
+                depth++;
+                maxDepth = Math.max(maxDepth, depth);
+            } else if (c == ')') {
+                depth = Math.max(0, depth - 1);
+            }
+            i = skipQuoted(query, i);
+        }
+
+        return maxDepth;
+    }
+
+    /**
+     * Splits a script into its statements, at the semicolons outside of quoted sections and comments. Leading and
+     * trailing whitespace is removed from each statement, and empty statements are dropped.
+     *
+     * @param script the script to split.
+     * @return the statements of the script, in order.
+     */
+    public static List<String> split(String script) {
+        List<String> statements = new ArrayList<>();
+
+        int start = 0;
+        int i = 0;
+        while (i < script.length()) {
+            if (script.charAt(i) == ';') {
+                addStatement(statements, script.substring(start, i));
+                start = i + 1;
+                i++;
+            } else {
+                i = skipQuoted(script, i);
+            }
+        }
+        addStatement(statements, script.substring(start));
+
+        return statements;
+    }
+
+    /**
+     * Numbers the positional JDBC parameters of a query, by replacing each {@code ?} outside of quoted sections and
+     * comments by {@code ?1}, {@code ?2}, and so on. Queries in which all positional parameters already have an index,
+     * and named parameters, are left untouched. The numbered parameters keep their identity in the generated rules,
+     * even if a rule leaves out or reorders some of them.
+     *
+     * @param query the query to number the parameters of.
+     * @return the query with numbered parameters.
+     * @throws UnsupportedInputException if the query mixes parameters with and without an index, since the numbers
+     *         given to the latter could clash with the indices of the former.
+     */
+    public static String numberParameters(String query) throws UnsupportedInputException {
+        StringBuilder builder = new StringBuilder(query.length());
+        int count = 0;
+        boolean indexed = false;
+
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            int end = skipQuoted(query, i);
+            if (c == '?' && (end == query.length() || !Character.isDigit(query.charAt(end)))) {
+                builder.append('?').append(++count);
+            } else {
+                indexed |= c == '?';
+                builder.append(query, i, end);
+            }
+            i = end;
+        }
+
+        if (indexed && count > 0) {
+            throw new UnsupportedInputException("Positional parameters with and without an index cannot be mixed.");
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Adds the given statement to the list, unless it is empty.
+     *
+     * @param statements the statements found so far.
+     * @param statement the text of the statement to add.
+     */
+    private static void addStatement(List<String> statements, String statement) {
+        String trimmed = statement.trim();
+        if (!trimmed.isEmpty()) {
+            statements.add(trimmed);
+        }
+    }
+
+    /**
+     * Returns the index just past the quoted literal, quoted identifier or comment that starts at {@code start}. If
+     * no such section starts at {@code start}, the index of the next character is returned. An unterminated section
+     * extends to the end of the query.
+     *
+     * @param query the query to scan.
+     * @param start the index at which the section may start.
+     * @return the index just past the section.
+     */
+    public static int skipQuoted(String query, int start) {
+        char c = query.charAt(start);
+        switch (c) {
+            case '\'':
+            case '"':
+            case '`':
+                return indexAfter(query, String.valueOf(c), start + 1);
+            case '[':
+                return indexAfter(query, "]", start + 1);
+            case '-':
+                if (query.startsWith("--", start)) {
+                    return indexAfter(query, "\n", start + 2);
+                }
+                return start + 1;
+            case '/':
+                if (query.startsWith("/*", start)) {
+                    return indexAfter(query, "*/", start + 2);
+                }
+                return start + 1;
+            default:
+                return start + 1;
+        }
+    }
+
+    /**
+     * Returns the index just past the first occurrence of {@code terminator} at or after {@code from}.
+     *
+     * @param query the query to scan.
+     * @param terminator the string that ends the section.
+     * @param from the index at which to start searching.
+     * @return the index just past the terminator, or the length of {@code query} if it does not occur.
+     */
+    private static int indexAfter(String query, String terminator, int from) {
+        int index = query.indexOf(terminator, from);
+        if (index < 0) {
+            return query.length();
+        }
+
+        return index + terminator.length();
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.sergdelft.sqlcorgi.util.cloner;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Reports how much copying the static {@code copy} methods of {@link SelectCloner} and {@link ExpressionCloner} have
+ * done on the current thread, and how many bytes the thread has allocated. The counters only ever increase, so the
+ * copying done by a piece of code is the difference between the counters after and before it has run.
+ * <p>
+ * Nodes are counted as they are copied by the cloners, which costs next to nothing. Bytes are read from the allocation
+ * counter of the JVM, which includes everything the thread allocates, not only the copies, and costs tens of
+ * nanoseconds per read. It should therefore be read around large pieces of work, such as a whole phase, rather than
+ * around every copy. On JVMs that do not measure the allocations of threads, no bytes are counted.
+ */
+public final class CloneCounters {
+
+    private static final com.sun.management.ThreadMXBean ALLOCATION_COUNTER = createAllocationCounter();
+
+    /**
+     * No instances of this class can be created.
+     */
+    private CloneCounters() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the number of syntax tree nodes that have been copied on the current thread.
+     *
+     * @return the number of copied nodes.
+     */
+    public static long clonedNodes() {
+        return ClonerContext.current().getClonedNodes();
+    }
+
+    /**
+     * Returns the number of bytes that the current thread has allocated so far.
+     *
+     * @return the number of allocated bytes, or 0 if the JVM does not measure the allocations of threads.
+     */
+    public static long allocatedBytes() {
+        if (ALLOCATION_COUNTER == null) {
+            return 0;
+        }
+
+        return ALLOCATION_COUNTER.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Returns the bean that measures the allocations of threads, if the JVM supports it.
+     *
+     * @return the bean, or {@code null} if the allocations of threads cannot be measured.
+     */
+    private static com.sun.management.ThreadMXBean createAllocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+
+        com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+        if (!counter.isThreadAllocatedMemorySupported() || !counter.isThreadAllocatedMemoryEnabled()) {
+            return null;
+        }
+
+        return counter;
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.sergdelft.sqlcorgi.util.cloner;
+
+/**
+ * The cloners that are used by the static {@code copy} methods of {@link SelectCloner} and {@link ExpressionCloner}.
+ * The cloners only hold state while a copy is being made, so instead of creating a new set of cloners for every copy,
+ * each thread keeps a single context, which is reused by every copy it makes. The static methods then allocate
+ * nothing beyond the copied nodes.
+ * <p>
+ * A context is acquired for the duration of a single copy and must be released afterwards. Should a copy be started
+ * while the context of the thread is still in use, a new context is created for it, so that the copy in progress is
+ * never disturbed.
+ * <p>
+ * The context of a thread also keeps the totals that are reported by {@link CloneCounters}.
+ */
+final class ClonerContext {
+
+    private static final ThreadLocal<ClonerContext> CONTEXT = ThreadLocal.withInitial(ClonerContext::new);
+
+    private final ExpressionCloner expressionCloner;
+    private final SelectCloner selectCloner;
+    private boolean inUse;
+
+    private long clonedNodes;
+
+    /**
+     * Creates a new context with its own set of cloners.
+     */
+    private ClonerContext() {
+        this.expressionCloner = new ExpressionCloner();
+        this.selectCloner = expressionCloner.getSelectCloner();
+    }
+
+    /**
+     * Acquires the context of the current thread.
+     *
+     * @return the context of the current thread, or a new context if that context is already in use.
+     */
+    static ClonerContext acquire() {
+        ClonerContext context = CONTEXT.get();
+        if (context.inUse) {
+            context = new ClonerContext();
+        }
+
+        context.inUse = true;
+        return context;
+    }
+
+    /**
+     * Releases the context, so that it can be acquired again. The cloners drop their reference to the last copy,
+     * so that the context does not keep it reachable. The nodes that have been copied are added to the total of the
+     * current thread.
+     */
+    void release() {
+        CONTEXT.get().clonedNodes += expressionCloner.takeNodeCount() + selectCloner.takeNodeCount();
+
+        expressionCloner.reset();
+        selectCloner.reset();
+        inUse = false;
+    }
+
+    ExpressionCloner getExpressionCloner() {
+        return expressionCloner;
+    }
+
+    SelectCloner getSelectCloner() {
+        return selectCloner;
+    }
+
+    /**
+     * Returns the context of the current thread, which holds the totals of the thread.
+     *
+     * @return the context of the current thread.
+     */
+    static ClonerContext current() {
+        return CONTEXT.get();
+    }
+
+    long getClonedNodes() {
+        return clonedNodes;
+    }
+}
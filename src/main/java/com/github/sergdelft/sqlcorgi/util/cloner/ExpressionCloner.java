@@ -1,5 +1,6 @@
 package com.github.sergdelft.sqlcorgi.util.cloner;
 
+import com.github.sergdelft.sqlcorgi.query.ParameterOffset;
 import net.sf.jsqlparser.expression.*;
 import net.sf.jsqlparser.expression.operators.arithmetic.*;
 import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
@@ -11,8 +12,10 @@ import net.sf.jsqlparser.statement.select.SelectBody;
 import net.sf.jsqlparser.statement.select.SubSelect;
 import net.sf.jsqlparser.statement.select.WithItem;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 
 /**
@@ -26,11 +29,16 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     private OrderByCloner orderByCloner;
     private SelectCloner selectCloner;
+    private LeafInterner leaves;
+
+    private final Deque<BinaryExpression> pending = new ArrayDeque<>();
+    private boolean copyingBinaryExpressions;
+    private long nodes;
 
     /**
      * Creates a new instance of this class, which uses a new {@link SelectCloner} for {@link SubSelect}s.
      */
-    private ExpressionCloner() {
+    ExpressionCloner() {
         this.orderByCloner = new OrderByCloner(this);
         this.selectCloner = new SelectCloner(this, this.orderByCloner);
     }
@@ -55,10 +63,38 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
      */
     public static Expression copy(Expression expression) {
 
-        ExpressionCloner expressionCloner = new ExpressionCloner();
-        expression.accept(expressionCloner);
+        ClonerContext context = ClonerContext.acquire();
+        try {
+            ExpressionCloner expressionCloner = context.getExpressionCloner();
+            expression.accept(expressionCloner);
+
+            return expressionCloner.copy;
+        } finally {
+            context.release();
+        }
+    }
+
+    /**
+     * Creates a copy of an {@link Expression} in which the leaves are shared instead of copied. Every leaf is replaced
+     * by the equal leaf interned by {@code leaves}, so the copy may share leaves with other expressions, but never
+     * shares any other node.
+     *
+     * @param expression the expression that needs to be copied.
+     * @param leaves the interner of the leaves.
+     * @return a copy of {@code expression} with interned leaves.
+     */
+    public static Expression copy(Expression expression, LeafInterner leaves) {
+
+        ClonerContext context = ClonerContext.acquire();
+        try {
+            ExpressionCloner expressionCloner = context.getExpressionCloner();
+            expressionCloner.leaves = leaves;
+            expression.accept(expressionCloner);
 
-        return expressionCloner.copy;
+            return expressionCloner.copy;
+        } finally {
+            context.release();
+        }
     }
 
     /**
@@ -70,30 +106,64 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
      */
     public static ItemsList copy(ItemsList itemsList) {
 
-        ExpressionCloner expressionCloner = new ExpressionCloner();
-        itemsList.accept(expressionCloner);
+        ClonerContext context = ClonerContext.acquire();
+        try {
+            ExpressionCloner expressionCloner = context.getExpressionCloner();
+            itemsList.accept(expressionCloner);
 
-        return expressionCloner.itemsList;
+            return expressionCloner.itemsList;
+        } finally {
+            context.release();
+        }
+    }
+
+    /**
+     * Returns the leaf that is used in the copy in place of the given copied leaf.
+     *
+     * @param leaf the copy of a leaf.
+     * @return the interned leaf that is equal to {@code leaf}, or {@code leaf} itself if no leaves are interned.
+     */
+    private Expression share(Expression leaf) {
+        return leaves == null ? leaf : leaves.intern(leaf);
     }
 
     /**
      * Copies the {@code not} field, and the left and right expressions of a given {@link BinaryExpression}.
+     * <p>
+     * Generated filters can consist of thousands of nested binary expressions, such as long chains of {@code OR}
+     * terms, which would overflow the call stack if they were copied recursively. Therefore, the binary expressions
+     * of a tree are copied iteratively: nested binary expressions are only created while the copy is running, and are
+     * put on a work stack, from which their operands are copied afterwards. The copy is complete once the work stack
+     * of the outermost binary expression is empty.
      *
      * @param toBeCopied the {@code BinaryExpression} that needs to be copied.
      */
     private void copyBinaryExpression(BinaryExpression toBeCopied) {
 
         BinaryExpression temp = (BinaryExpression) this.copy;
-        this.copy = null;
+        pending.push(toBeCopied);
+        pending.push(temp);
+        if (copyingBinaryExpressions) {
+            return;
+        }
 
-        toBeCopied.getLeftExpression().accept(this);
-        Expression leftCopy = this.copy;
+        copyingBinaryExpressions = true;
+        try {
+            while (!pending.isEmpty()) {
+                BinaryExpression copy = pending.pop();
+                BinaryExpression original = pending.pop();
 
-        toBeCopied.getRightExpression().accept(this);
-        Expression rightCopy = this.copy;
+                original.getLeftExpression().accept(this);
+                copy.setLeftExpression(this.copy);
+
+                original.getRightExpression().accept(this);
+                copy.setRightExpression(this.copy);
+            }
+        } finally {
+            copyingBinaryExpressions = false;
+            pending.clear();
+        }
 
-        temp.setLeftExpression(leftCopy);
-        temp.setRightExpression(rightCopy);
         this.copy = temp;
     }
 
@@ -135,23 +205,27 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(BitwiseRightShift bitwiseRightShift) {
+        nodes++;
         this.copy = new BitwiseRightShift();
         copyBinaryExpression(bitwiseRightShift);
     }
 
     @Override
     public void visit(BitwiseLeftShift bitwiseLeftShift) {
+        nodes++;
         this.copy = new BitwiseLeftShift();
         copyBinaryExpression(bitwiseLeftShift);
     }
 
     @Override
     public void visit(NullValue nullValue) {
-        this.copy = new NullValue();
+        nodes++;
+        this.copy = share(new NullValue());
     }
 
     @Override
     public void visit(Function function) {
+        nodes++;
 
         Function copy = new Function();
 
@@ -185,109 +259,128 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
             copy.setKeep((KeepExpression) this.copy);
         }
 
-        this.copy = copy;
+        this.copy = share(copy);
     }
 
     @Override
     public void visit(SignedExpression signedExpression) {
+        nodes++;
         signedExpression.getExpression().accept(this);
         this.copy = new SignedExpression(signedExpression.getSign(), this.copy);
     }
 
     @Override
     public void visit(JdbcParameter jdbcParameter) {
+        nodes++;
         this.copy = new JdbcParameter(jdbcParameter.getIndex(), jdbcParameter.isUseFixedIndex());
     }
 
     @Override
     public void visit(JdbcNamedParameter jdbcNamedParameter) {
+        nodes++;
         this.copy = new JdbcNamedParameter(jdbcNamedParameter.getName());
     }
 
     @Override
     public void visit(DoubleValue doubleValue) {
-        this.copy = new DoubleValue(doubleValue.toString());
+        nodes++;
+        this.copy = share(new DoubleValue(doubleValue.toString()));
     }
 
     @Override
     public void visit(LongValue longValue) {
-        this.copy = new LongValue(longValue.getValue());
+        nodes++;
+        this.copy = share(new LongValue(longValue.getValue()));
     }
 
     @Override
     public void visit(HexValue hexValue) {
+        nodes++;
         this.copy = new HexValue(hexValue.getValue());
     }
 
     @Override
     public void visit(DateValue dateValue) {
+        nodes++;
         this.copy = new DateValue('\'' + dateValue.getValue().toString() + '\'');
     }
 
     @Override
     public void visit(TimeValue timeValue) {
+        nodes++;
         this.copy = new TimeValue('\'' + timeValue.getValue().toString() + '\'');
     }
 
     @Override
     public void visit(TimestampValue timestampValue) {
+        nodes++;
         this.copy = new TimestampValue(timestampValue.getValue().toString());
     }
 
     @Override
     public void visit(Parenthesis parenthesis) {
+        nodes++;
         parenthesis.getExpression().accept(this);
         this.copy = new Parenthesis(this.copy);
     }
 
     @Override
     public void visit(StringValue stringValue) {
+        nodes++;
 
         StringValue copy = new StringValue("");
         copy.setValue(stringValue.getValue());
         copy.setPrefix(stringValue.getPrefix());
 
-        this.copy = copy;
+        this.copy = share(copy);
     }
 
     @Override
     public void visit(Addition addition) {
-        this.copy = new Addition();
+        nodes++;
+        // A generated boundary of a parameter must remain recognizable in copies.
+        this.copy = addition instanceof ParameterOffset ? new ParameterOffset.Increment() : new Addition();
         copyBinaryExpression(addition);
     }
 
     @Override
     public void visit(Division division) {
+        nodes++;
         this.copy = new Division();
         copyBinaryExpression(division);
     }
 
     @Override
     public void visit(Multiplication multiplication) {
+        nodes++;
         this.copy = new Multiplication();
         copyBinaryExpression(multiplication);
     }
 
     @Override
     public void visit(Subtraction subtraction) {
-        this.copy = new Subtraction();
+        nodes++;
+        this.copy = subtraction instanceof ParameterOffset ? new ParameterOffset.Decrement() : new Subtraction();
         copyBinaryExpression(subtraction);
     }
 
     @Override
     public void visit(AndExpression andExpression) {
+        nodes++;
         this.copy = new AndExpression(null, null);
         copyBinaryExpression(andExpression);
     }
 
     @Override
     public void visit(OrExpression orExpression) {
+        nodes++;
         this.copy = new OrExpression(null, null);
         copyBinaryExpression(orExpression);
     }
 
     @Override
     public void visit(Between between) {
+        nodes++;
         Between copy = new Between();
         copy.setNot(between.isNot());
 
@@ -305,24 +398,28 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(EqualsTo equalsTo) {
+        nodes++;
         this.copy = new EqualsTo();
         copyOldOracleJoinBinaryExpression(equalsTo);
     }
 
     @Override
     public void visit(GreaterThan greaterThan) {
+        nodes++;
         this.copy = new GreaterThan();
         copyOldOracleJoinBinaryExpression(greaterThan);
     }
 
     @Override
     public void visit(GreaterThanEquals greaterThanEquals) {
+        nodes++;
         this.copy = new GreaterThanEquals();
         copyOldOracleJoinBinaryExpression(greaterThanEquals);
     }
 
     @Override
     public void visit(InExpression inExpression) {
+        nodes++;
 
         InExpression copy = new InExpression();
         copy.setNot(inExpression.isNot());
@@ -352,6 +449,7 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(IsNullExpression isNullExpression) {
+        nodes++;
 
         IsNullExpression copy = new IsNullExpression();
         copy.setUseIsNull(isNullExpression.isUseIsNull());
@@ -365,6 +463,7 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(LikeExpression likeExpression) {
+        nodes++;
 
         LikeExpression copy = new LikeExpression();
         copy.setNot(likeExpression.isNot());
@@ -377,18 +476,21 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(MinorThan minorThan) {
+        nodes++;
         this.copy = new MinorThan();
         copyOldOracleJoinBinaryExpression(minorThan);
     }
 
     @Override
     public void visit(MinorThanEquals minorThanEquals) {
+        nodes++;
         this.copy = new MinorThanEquals();
         copyOldOracleJoinBinaryExpression(minorThanEquals);
     }
 
     @Override
     public void visit(NotEqualsTo notEqualsTo) {
+        nodes++;
         this.copy = new NotEqualsTo();
         copyOldOracleJoinBinaryExpression(notEqualsTo);
     }
@@ -400,7 +502,8 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
      */
     @Override
     public void visit(Column tableColumn) {
-        this.copy = new Column(tableColumn.getTable(), tableColumn.getColumnName());
+        nodes++;
+        this.copy = share(new Column(tableColumn.getTable(), tableColumn.getColumnName()));
     }
 
     /**
@@ -410,6 +513,7 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
      */
     @Override
     public void visit(SubSelect subSelect) {
+        nodes++;
 
         SubSelect copy = new SubSelect();
         copy.setUseBrackets(subSelect.isUseBrackets());
@@ -445,6 +549,7 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(ExpressionList expressionList) {
+        nodes++;
         ExpressionList copy = new ExpressionList();
         copy.setExpressions(copyExpressionsList(expressionList.getExpressions()));
 
@@ -453,6 +558,7 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(NamedExpressionList namedExpressionList) {
+        nodes++;
 
         NamedExpressionList copy = new NamedExpressionList();
         copy.setExpressions(copyExpressionsList(namedExpressionList.getExpressions()));
@@ -467,6 +573,7 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(MultiExpressionList multiExprList) {
+        nodes++;
 
         MultiExpressionList copy = new MultiExpressionList();
 
@@ -480,6 +587,7 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(CaseExpression caseExpression) {
+        nodes++;
 
         CaseExpression copy = new CaseExpression();
 
@@ -512,6 +620,7 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(WhenClause whenClause) {
+        nodes++;
 
         WhenClause copy = new WhenClause();
 
@@ -532,6 +641,7 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(ExistsExpression existsExpression) {
+        nodes++;
 
         ExistsExpression copy = new ExistsExpression();
         copy.setNot(existsExpression.isNot());
@@ -544,48 +654,56 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(AllComparisonExpression allComparisonExpression) {
+        nodes++;
         allComparisonExpression.getSubSelect().accept((ExpressionVisitor) this);
         this.copy = new AllComparisonExpression((SubSelect) this.copy);
     }
 
     @Override
     public void visit(AnyComparisonExpression anyComparisonExpression) {
+        nodes++;
         anyComparisonExpression.getSubSelect().accept((ExpressionVisitor) this);
         this.copy = new AnyComparisonExpression(anyComparisonExpression.getAnyType(), (SubSelect) this.copy);
     }
 
     @Override
     public void visit(Concat concat) {
+        nodes++;
         this.copy = new Concat();
         copyBinaryExpression(concat);
     }
 
     @Override
     public void visit(Matches matches) {
+        nodes++;
         this.copy = new Matches();
         copyOldOracleJoinBinaryExpression(matches);
     }
 
     @Override
     public void visit(BitwiseAnd bitwiseAnd) {
+        nodes++;
         this.copy = new BitwiseAnd();
         copyBinaryExpression(bitwiseAnd);
     }
 
     @Override
     public void visit(BitwiseOr bitwiseOr) {
+        nodes++;
         this.copy = new BitwiseOr();
         copyBinaryExpression(bitwiseOr);
     }
 
     @Override
     public void visit(BitwiseXor bitwiseXor) {
+        nodes++;
         this.copy = new BitwiseXor();
         copyBinaryExpression(bitwiseXor);
     }
 
     @Override
     public void visit(CastExpression cast) {
+        nodes++;
 
         CastExpression copy = new CastExpression();
         copy.setUseCastKeyword(cast.isUseCastKeyword());
@@ -612,17 +730,20 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(Modulo modulo) {
+        nodes++;
         this.copy = new Modulo();
         copyBinaryExpression(modulo);
     }
 
     @Override
     public void visit(AnalyticExpression analyticExpression) {
+        nodes++;
         throw new UnsupportedOperationException();
     }
 
     @Override
     public void visit(ExtractExpression extractExpression) {
+        nodes++;
 
         ExtractExpression copy = new ExtractExpression();
         copy.setName(extractExpression.getName());
@@ -635,6 +756,7 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(IntervalExpression intervalExpression) {
+        nodes++;
 
         IntervalExpression copy = new IntervalExpression();
         copy.setIntervalType(intervalExpression.getIntervalType());
@@ -651,6 +773,7 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(OracleHierarchicalExpression hierarchicalExpression) {
+        nodes++;
 
         OracleHierarchicalExpression copy = new OracleHierarchicalExpression();
         copy.setNoCycle(hierarchicalExpression.isNoCycle());
@@ -667,23 +790,27 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(RegExpMatchOperator regExpMatchOperator) {
+        nodes++;
         this.copy = new RegExpMatchOperator(regExpMatchOperator.getOperatorType());
         copyBinaryExpression(regExpMatchOperator);
     }
 
     @Override
     public void visit(JsonExpression jsonExpr) {
+        nodes++;
         throw new UnsupportedOperationException();
     }
 
     @Override
     public void visit(JsonOperator jsonExpr) {
+        nodes++;
         this.copy = new JsonOperator(jsonExpr.getStringExpression());
         copyBinaryExpression(jsonExpr);
     }
 
     @Override
     public void visit(RegExpMySQLOperator regExpMySQLOperator) {
+        nodes++;
 
         RegExpMySQLOperator copy = new RegExpMySQLOperator(regExpMySQLOperator.getOperatorType());
         if (regExpMySQLOperator.isUseRLike()) {
@@ -696,6 +823,7 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(UserVariable var) {
+        nodes++;
 
         UserVariable copy = new UserVariable();
         copy.setName(var.getName());
@@ -706,6 +834,7 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(NumericBind bind) {
+        nodes++;
 
         NumericBind copy = new NumericBind();
         copy.setBindId(bind.getBindId());
@@ -715,6 +844,7 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(KeepExpression keepExpression) {
+        nodes++;
 
         KeepExpression copy = new KeepExpression();
         copy.setName(keepExpression.getName());
@@ -727,11 +857,13 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(MySQLGroupConcat groupConcat) {
+        nodes++;
         throw new UnsupportedOperationException();
     }
 
     @Override
     public void visit(ValueListExpression valueList) {
+        nodes++;
 
         ValueListExpression copy = new ValueListExpression();
 
@@ -743,6 +875,7 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(RowConstructor rowConstructor) {
+        nodes++;
 
         RowConstructor copy = new RowConstructor();
         copy.setName(rowConstructor.getName());
@@ -755,6 +888,7 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(OracleHint hint) {
+        nodes++;
 
         OracleHint copy = new OracleHint();
         copy.setValue(hint.getValue());
@@ -765,11 +899,13 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(TimeKeyExpression timeKeyExpression) {
+        nodes++;
         this.copy = new TimeKeyExpression(timeKeyExpression.getStringValue());
     }
 
     @Override
     public void visit(DateTimeLiteralExpression literal) {
+        nodes++;
 
         DateTimeLiteralExpression copy = new DateTimeLiteralExpression();
         copy.setType(literal.getType());
@@ -780,23 +916,27 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
 
     @Override
     public void visit(NotExpression notExpression) {
+        nodes++;
         notExpression.getExpression().accept(this);
         this.copy = new NotExpression(this.copy, notExpression.isExclamationMark());
     }
 
     @Override
     public void visit(NextValExpression nextValExpression) {
+        nodes++;
         this.copy = new NextValExpression(Arrays.asList(nextValExpression.getName().split("\\.")));
     }
 
     @Override
     public void visit(CollateExpression collateExpression) {
+        nodes++;
         collateExpression.getLeftExpression().accept(this);
         this.copy = new CollateExpression(this.copy, collateExpression.getCollate());
     }
 
     @Override
     public void visit(SimilarToExpression similarToExpression) {
+        nodes++;
 
         SimilarToExpression copy = new SimilarToExpression();
         copy.setNot(similarToExpression.isNot());
@@ -814,4 +954,28 @@ public class ExpressionCloner implements ExpressionVisitor, ItemsListVisitor {
         return this.itemsList;
     }
 
+    SelectCloner getSelectCloner() {
+        return this.selectCloner;
+    }
+
+    /**
+     * Returns the number of nodes that have been copied since the last call, and resets it.
+     *
+     * @return the number of copied nodes.
+     */
+    long takeNodeCount() {
+        long count = this.nodes;
+        this.nodes = 0;
+        return count;
+    }
+
+    /**
+     * Drops the references to the last copies that were made, and stops interning leaves.
+     */
+    void reset() {
+        this.copy = null;
+        this.itemsList = null;
+        this.leaves = null;
+    }
+
 }
@@ -0,0 +1,174 @@
+package com.github.sergdelft.sqlcorgi.util.cloner;
+
+import net.sf.jsqlparser.expression.DoubleValue;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.Function;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.NullValue;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Interns the leaves of generated rules, so that equal leaves share a single instance. The rules of a query contain
+ * the same columns and literals over and over again, such as the column of every {@code IS NULL} rule and the
+ * {@code 1} of every off-by-one boundary. Sharing these leaves reduces the memory that a large set of rules takes up,
+ * and allows equal leaves to be recognized by identity.
+ * <p>
+ * The leaves are columns, numeric, string and {@code NULL} literals, and functions without parameters, such as
+ * {@code COUNT(*)}. Two leaves are equal if they are of the same class and have the same fields that make up their
+ * text, such as the name and table of a column, or the text of a literal. The leaves are compared by those fields
+ * directly, without rendering them. Interned leaves are shared by all rules that use them, so they must never be
+ * modified.
+ * <p>
+ * An interner belongs to a single generation run, so it only holds the leaves of a single query. It is not
+ * thread-safe.
+ */
+public final class LeafInterner {
+
+    private static final int ESCAPED = 2;
+    private static final int IGNORE_NULLS = 4;
+    private static final int DISTINCT = 8;
+    private static final int HASH_MULTIPLIER = 31;
+
+    private final Map<LeafKey, Expression> leaves = new HashMap<>();
+
+    /**
+     * Returns the interned instance that is equal to the given leaf. If no equal leaf has been interned yet,
+     * {@code leaf} itself is interned, after which it must no longer be modified. Expressions that are not leaves are
+     * returned unchanged.
+     *
+     * @param expression the leaf to intern.
+     * @return the interned leaf that is equal to {@code expression}, or {@code expression} if it is not a leaf.
+     */
+    public Expression intern(Expression expression) {
+        if (!isLeaf(expression)) {
+            return expression;
+        }
+
+        return leaves.computeIfAbsent(keyOf(expression), key -> expression);
+    }
+
+    /**
+     * Returns the number of distinct leaves that have been interned.
+     *
+     * @return the number of interned leaves.
+     */
+    public int size() {
+        return leaves.size();
+    }
+
+    /**
+     * Creates the key under which the given leaf is interned.
+     *
+     * @param leaf the leaf to create a key for.
+     * @return the key of the leaf.
+     */
+    private static LeafKey keyOf(Expression leaf) {
+        if (leaf instanceof Column) {
+            Column column = (Column) leaf;
+            Table table = column.getTable();
+            if (table == null) {
+                return new LeafKey(Column.class, column.getColumnName(), null, null, 0);
+            }
+
+            // Only tables that are qualified by a schema or database are rendered to get their name.
+            String tableName = table.getSchemaName() == null && table.getDatabase() == null
+                ? table.getName() : table.getFullyQualifiedName();
+            String alias = table.getAlias() == null ? null : table.getAlias().getName();
+            return new LeafKey(Column.class, column.getColumnName(), tableName, alias, 1);
+        }
+
+        if (leaf instanceof LongValue) {
+            return new LeafKey(LongValue.class, ((LongValue) leaf).getStringValue(), null, null, 0);
+        }
+
+        if (leaf instanceof StringValue) {
+            StringValue value = (StringValue) leaf;
+            return new LeafKey(StringValue.class, value.getValue(), value.getPrefix(), null, 0);
+        }
+
+        if (leaf instanceof Function) {
+            Function function = (Function) leaf;
+            int flags = (function.isAllColumns() ? 1 : 0) | (function.isEscaped() ? ESCAPED : 0)
+                | (function.isIgnoreNulls() ? IGNORE_NULLS : 0) | (function.isDistinct() ? DISTINCT : 0);
+            return new LeafKey(Function.class, function.getName(), function.getAttributeName(), null, flags);
+        }
+
+        // The text of a double is the text it was created from, and a NULL literal has no fields at all.
+        return new LeafKey(leaf.getClass(), leaf instanceof DoubleValue ? leaf.toString() : null, null, null, 0);
+    }
+
+    /**
+     * Returns whether the given expression is a leaf that can be interned.
+     *
+     * @param expression the expression to check.
+     * @return {@code true} if the expression is a leaf.
+     */
+    private static boolean isLeaf(Expression expression) {
+        if (expression instanceof Function) {
+            Function function = (Function) expression;
+            return function.getParameters() == null && function.getNamedParameters() == null
+                && function.getAttribute() == null && function.getKeep() == null;
+        }
+
+        return expression instanceof Column || expression instanceof LongValue || expression instanceof DoubleValue
+            || expression instanceof StringValue || expression instanceof NullValue;
+    }
+
+    /**
+     * The class of a leaf together with the fields that make up its text.
+     */
+    private static final class LeafKey {
+
+        private final Class<?> type;
+        private final String first;
+        private final String second;
+        private final String third;
+        private final int flags;
+
+        /**
+         * Creates a key.
+         *
+         * @param type the class of the leaf.
+         * @param first the first field of the leaf, or {@code null}.
+         * @param second the second field of the leaf, or {@code null}.
+         * @param third the third field of the leaf, or {@code null}.
+         * @param flags the boolean fields of the leaf.
+         */
+        LeafKey(Class<?> type, String first, String second, String third, int flags) {
+            this.type = type;
+            this.first = first;
+            this.second = second;
+            this.third = third;
+            this.flags = flags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof LeafKey)) {
+                return false;
+            }
+            LeafKey other = (LeafKey) o;
+            return type == other.type && flags == other.flags && Objects.equals(first, other.first)
+                && Objects.equals(second, other.second) && Objects.equals(third, other.third);
+        }
+
+        @Override
+        public int hashCode() {
+            // Objects.hash would allocate an array for its arguments on every lookup.
+            int hash = type.hashCode();
+            hash = HASH_MULTIPLIER * hash + Objects.hashCode(first);
+            hash = HASH_MULTIPLIER * hash + Objects.hashCode(second);
+            hash = HASH_MULTIPLIER * hash + Objects.hashCode(third);
+            return HASH_MULTIPLIER * hash + flags;
+        }
+    }
+}
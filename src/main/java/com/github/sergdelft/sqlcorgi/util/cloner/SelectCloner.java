@@ -19,22 +19,12 @@ public class SelectCloner implements SelectVisitor, SelectItemVisitor, FromItemV
     private SelectBody copy;
     private SelectItem selectItem;
     private FromItem fromItem;
+    private long nodes;
 
     private ExpressionCloner expressionCloner;
     private GroupByCloner groupByCloner;
     private OrderByCloner orderByCloner;
 
-    /**
-     * Creates a new instance of this class, which uses new cloners itself.
-     */
-    private SelectCloner() {
-
-        this.orderByCloner = new OrderByCloner(null);
-        this.expressionCloner = new ExpressionCloner(this, orderByCloner);
-        this.orderByCloner.setExpressionCloner(this.expressionCloner);
-        this.groupByCloner = new GroupByCloner(this.expressionCloner);
-    }
-
     /**
      * Creates a new instance of this class, which uses the provided cloners.
      *
@@ -55,10 +45,15 @@ public class SelectCloner implements SelectVisitor, SelectItemVisitor, FromItemV
      */
     public static SelectBody copy(SelectBody selectBody) {
 
-        SelectCloner selectCloner = new SelectCloner();
-        selectBody.accept(selectCloner);
+        ClonerContext context = ClonerContext.acquire();
+        try {
+            SelectCloner selectCloner = context.getSelectCloner();
+            selectBody.accept(selectCloner);
 
-        return selectCloner.copy;
+            return selectCloner.copy;
+        } finally {
+            context.release();
+        }
     }
 
     /**
@@ -69,10 +64,15 @@ public class SelectCloner implements SelectVisitor, SelectItemVisitor, FromItemV
      */
     public static SelectItem copy(SelectItem selectItem) {
 
-        SelectCloner selectCloner = new SelectCloner();
-        selectItem.accept(selectCloner);
+        ClonerContext context = ClonerContext.acquire();
+        try {
+            SelectCloner selectCloner = context.getSelectCloner();
+            selectItem.accept(selectCloner);
 
-        return selectCloner.selectItem;
+            return selectCloner.selectItem;
+        } finally {
+            context.release();
+        }
     }
 
     /**
@@ -83,10 +83,119 @@ public class SelectCloner implements SelectVisitor, SelectItemVisitor, FromItemV
      */
     public static FromItem copy(FromItem fromItem) {
 
-        SelectCloner selectCloner = new SelectCloner();
-        fromItem.accept(selectCloner);
+        ClonerContext context = ClonerContext.acquire();
+        try {
+            SelectCloner selectCloner = context.getSelectCloner();
+            fromItem.accept(selectCloner);
+
+            return selectCloner.fromItem;
+        } finally {
+            context.release();
+        }
+    }
+
+    /**
+     * Creates a copy of a {@link PlainSelect} in which only the WHERE and HAVING clauses are deep copies. All other
+     * clauses, such as the select list, the FROM item, the joins and the GROUP BY and ORDER BY elements, are shared
+     * with {@code plainSelect}. This is much cheaper than {@link #copy(SelectBody)} when many variants of a query only
+     * differ in their WHERE or HAVING clause, since the size of the copy does not depend on the size of the rest of
+     * the query. Neither select may be modified outside of its WHERE and HAVING clauses afterwards, as such changes
+     * would show up in the other.
+     *
+     * @param plainSelect the {@code PlainSelect} that needs to be copied.
+     * @return a copy of {@code plainSelect} that shares all clauses but its WHERE and HAVING clauses.
+     */
+    public static PlainSelect copyPath(PlainSelect plainSelect) {
+
+        ClonerContext context = ClonerContext.acquire();
+        try {
+            return context.getSelectCloner().sharePlainSelect(plainSelect);
+        } finally {
+            context.release();
+        }
+    }
+
+    /**
+     * Creates a <b>shallow copy</b> of a {@link PlainSelect}, which shares all of its clauses with
+     * {@code plainSelect}. Clauses can be replaced in either select without affecting the other, but the clauses
+     * themselves must not be modified.
+     *
+     * @param plainSelect the {@code PlainSelect} that needs to be copied.
+     * @return a copy of {@code plainSelect} that shares all of its clauses.
+     */
+    public static PlainSelect shallowCopy(PlainSelect plainSelect) {
+        return share(plainSelect, plainSelect.getWhere(), plainSelect.getHaving());
+    }
+
+    /**
+     * Creates a copy of the given {@link PlainSelect} that shares all clauses but its WHERE and HAVING clauses.
+     *
+     * @param plainSelect the {@code PlainSelect} that needs to be copied.
+     * @return a clone of {@code plainSelect} that shares most of its clauses.
+     */
+    private PlainSelect sharePlainSelect(PlainSelect plainSelect) {
+
+        nodes++;
+        return share(plainSelect, copyExpression(plainSelect.getWhere()), copyExpression(plainSelect.getHaving()));
+    }
+
+    /**
+     * Creates a copy of the given {@link PlainSelect} with the given WHERE and HAVING clauses, that shares all other
+     * clauses with {@code plainSelect}.
+     *
+     * @param plainSelect the {@code PlainSelect} that needs to be copied.
+     * @param where the WHERE clause of the copy.
+     * @param having the HAVING clause of the copy.
+     * @return a copy of {@code plainSelect} with the given WHERE and HAVING clauses.
+     */
+    private static PlainSelect share(PlainSelect plainSelect, Expression where, Expression having) {
+
+        PlainSelect copy = new PlainSelect();
+
+        copy.setDistinct(plainSelect.getDistinct());
+        copy.setSelectItems(plainSelect.getSelectItems());
+        copy.setIntoTables(plainSelect.getIntoTables());
+        copy.setFromItem(plainSelect.getFromItem());
+        copy.setJoins(plainSelect.getJoins());
+        copy.setWhere(where);
+        copy.setGroupByElement(plainSelect.getGroupBy());
+        copy.setOrderByElements(plainSelect.getOrderByElements());
+        copy.setHaving(having);
+        copy.setLimit(plainSelect.getLimit());
+        copy.setOffset(plainSelect.getOffset());
+        copy.setFetch(plainSelect.getFetch());
+        copy.setOptimizeFor(plainSelect.getOptimizeFor());
+        copy.setSkip(plainSelect.getSkip());
+        copy.setFirst(plainSelect.getFirst());
+        copy.setTop(plainSelect.getTop());
+        copy.setOracleHierarchical(plainSelect.getOracleHierarchical());
+        copy.setOracleHint(plainSelect.getOracleHint());
+        copy.setOracleSiblings(plainSelect.isOracleSiblings());
+        copy.setForUpdate(plainSelect.isForUpdate());
+        copy.setForUpdateTable(plainSelect.getForUpdateTable());
+        copy.setUseBrackets(plainSelect.isUseBrackets());
+        copy.setWait(plainSelect.getWait());
+        copy.setMySqlSqlCalcFoundRows(plainSelect.getMySqlSqlCalcFoundRows());
+        copy.setMySqlSqlNoCache(plainSelect.getMySqlSqlNoCache());
+        copy.setForXmlPath(plainSelect.getForXmlPath());
 
-        return selectCloner.fromItem;
+        return copy;
+    }
+
+    /**
+     * Creates a deep copy of the given {@link Expression}.
+     *
+     * @param expression the {@code Expression} that needs to be copied.
+     * @return a clone of {@code expression}.
+     */
+    private Expression copyExpression(Expression expression) {
+
+        if (expression == null) {
+            return null;
+        }
+
+        expression.accept(expressionCloner);
+        return expressionCloner.getCopy();
     }
 
     /**
@@ -434,6 +543,7 @@ public class SelectCloner implements SelectVisitor, SelectItemVisitor, FromItemV
 
     @Override
     public void visit(PlainSelect plainSelect) {
+        nodes++;
 
         PlainSelect copy = new PlainSelect();
 
@@ -525,6 +635,7 @@ public class SelectCloner implements SelectVisitor, SelectItemVisitor, FromItemV
 
     @Override
     public void visit(SetOperationList setOpList) {
+        nodes++;
 
         SetOperationList copy = new SetOperationList();
         copy.setFetch(copyFetch(setOpList.getFetch()));
@@ -552,6 +663,7 @@ public class SelectCloner implements SelectVisitor, SelectItemVisitor, FromItemV
 
     @Override
     public void visit(WithItem withItem) {
+        nodes++;
 
         WithItem copy = new WithItem();
         copy.setName(withItem.getName());
@@ -567,6 +679,7 @@ public class SelectCloner implements SelectVisitor, SelectItemVisitor, FromItemV
 
     @Override
     public void visit(ValuesStatement valuesStatement) {
+        nodes++;
 
         List<Expression> expressions = valuesStatement.getExpressions();
 
@@ -582,16 +695,19 @@ public class SelectCloner implements SelectVisitor, SelectItemVisitor, FromItemV
 
     @Override
     public void visit(AllColumns allColumns) {
+        nodes++;
         this.selectItem = new AllColumns();
     }
 
     @Override
     public void visit(AllTableColumns allTableColumns) {
+        nodes++;
         this.selectItem = new AllTableColumns(allTableColumns.getTable());
     }
 
     @Override
     public void visit(SelectExpressionItem selectExpressionItem) {
+        nodes++;
 
         SelectExpressionItem copy = new SelectExpressionItem();
 
@@ -616,6 +732,7 @@ public class SelectCloner implements SelectVisitor, SelectItemVisitor, FromItemV
 
     @Override
     public void visit(SubJoin subjoin) {
+        nodes++;
 
         SubJoin copy = new SubJoin();
         copy.setAlias(copyAlias(subjoin.getAlias()));
@@ -637,6 +754,7 @@ public class SelectCloner implements SelectVisitor, SelectItemVisitor, FromItemV
 
     @Override
     public void visit(LateralSubSelect lateralSubSelect) {
+        nodes++;
 
         LateralSubSelect copy = new LateralSubSelect();
         copy.setAlias(copyAlias(lateralSubSelect.getAlias()));
@@ -651,6 +769,7 @@ public class SelectCloner implements SelectVisitor, SelectItemVisitor, FromItemV
 
     @Override
     public void visit(ValuesList valuesList) {
+        nodes++;
 
         ValuesList copy = new ValuesList();
         copy.setNoBrackets(valuesList.isNoBrackets());
@@ -672,6 +791,7 @@ public class SelectCloner implements SelectVisitor, SelectItemVisitor, FromItemV
 
     @Override
     public void visit(TableFunction tableFunction) {
+        nodes++;
 
         TableFunction copy = new TableFunction();
         copy.setAlias(copyAlias(tableFunction.getAlias()));
@@ -684,6 +804,7 @@ public class SelectCloner implements SelectVisitor, SelectItemVisitor, FromItemV
 
     @Override
     public void visit(ParenthesisFromItem parenthesisFromItem) {
+        nodes++;
 
         ParenthesisFromItem copy = new ParenthesisFromItem();
         copy.setAlias(copyAlias(parenthesisFromItem.getAlias()));
@@ -698,4 +819,24 @@ public class SelectCloner implements SelectVisitor, SelectItemVisitor, FromItemV
         return this.copy;
     }
 
+    /**
+     * Returns the number of nodes that have been copied since the last call, and resets it.
+     *
+     * @return the number of copied nodes.
+     */
+    long takeNodeCount() {
+        long count = this.nodes;
+        this.nodes = 0;
+        return count;
+    }
+
+    /**
+     * Drops the references to the last copies that were made.
+     */
+    void reset() {
+        this.copy = null;
+        this.selectItem = null;
+        this.fromItem = null;
+    }
+
 }
@@ -1,8 +1,14 @@
 package com.github.sergdelft.sqlcorgi.visitors;
 
 import com.github.sergdelft.sqlcorgi.AggregateFunctionsGenerator;
+import com.github.sergdelft.sqlcorgi.GenerationContext;
 import com.github.sergdelft.sqlcorgi.GroupByGenerator;
 import com.github.sergdelft.sqlcorgi.JoinRulesGenerator;
+import com.github.sergdelft.sqlcorgi.Phase;
+import com.github.sergdelft.sqlcorgi.Rule;
+import com.github.sergdelft.sqlcorgi.RuleSink;
+import com.github.sergdelft.sqlcorgi.StructuredRuleSink;
+import com.github.sergdelft.sqlcorgi.RuleTemplate;
 import com.github.sergdelft.sqlcorgi.schema.TableStructure;
 import com.github.sergdelft.sqlcorgi.visitors.select.NullAttributeFinder;
 import com.github.sergdelft.sqlcorgi.visitors.select.NullReducer;
@@ -18,16 +24,20 @@ import java.util.Set;
 import static com.github.sergdelft.sqlcorgi.SubqueryGenerator.coverSubqueries;
 import static com.github.sergdelft.sqlcorgi.util.Expressions.setJoinToInner;
 import static com.github.sergdelft.sqlcorgi.util.cloner.SelectCloner.copy;
+import static com.github.sergdelft.sqlcorgi.util.cloner.SelectCloner.copyPath;
 
 /**
  * A visitor used for generating coverage targets of a SELECT statement.
  */
 public class SelectStatementVisitor extends SelectVisitorAdapter {
 
+    private static final String NULL_TABLE_STRUCTURE_MESSAGE = "The table structure must not be null.";
+
     private TableStructure tableStructure;
 
-    private Set<String> output;
-    private List<PlainSelect> statements;
+    private StructuredRuleSink output;
+
+    private GenerationContext context;
 
     /**
      * Creates a new visitor which can be used to generate coverage rules for queries.
@@ -45,36 +55,96 @@ public class SelectStatementVisitor extends SelectVisitorAdapter {
         }
 
         if (tableStructure == null) {
-            throw new IllegalArgumentException("The table structure must not be null.");
+            throw new IllegalArgumentException(NULL_TABLE_STRUCTURE_MESSAGE);
+        }
+
+        this.tableStructure = tableStructure;
+        RuleSink sink = output::add;
+        this.output = sink;
+        this.context = new GenerationContext();
+    }
+
+    /**
+     * Creates a new visitor which can be used to generate coverage rules for queries.
+     * Any rules that are generated will be passed to {@code output} as soon as they are generated.
+     *
+     * @param tableStructure the table structure to be used when generating rules. If its schema is set to null, all
+     *                       attributes are assumed to not be nullable. It must not be null.
+     * @param output the sink to which generated rules should be passed. It must not be null.
+     */
+    public SelectStatementVisitor(TableStructure tableStructure, RuleSink output) {
+        this(tableStructure, output, new GenerationContext());
+    }
+
+    /**
+     * Creates a new visitor which can be used to generate coverage rules for queries as part of the given run.
+     * Any rules that are generated will be passed to {@code output} as soon as they are generated. Once the run is
+     * cancelled, the visitor stops generating rules by throwing a {@link java.util.concurrent.CancellationException}.
+     *
+     * @param tableStructure the table structure to be used when generating rules. If its schema is set to null, all
+     *                       attributes are assumed to not be nullable. It must not be null.
+     * @param output the sink to which generated rules should be passed. It must not be null.
+     * @param context the context of the run the visitor takes part in. It must not be null.
+     */
+    public SelectStatementVisitor(TableStructure tableStructure, StructuredRuleSink output,
+                                  GenerationContext context) {
+        if (context == null) {
+            throw new IllegalArgumentException("A SelectStatementVisitor requires a non-null generation context.");
+        }
+
+        if (output == null) {
+            throw new IllegalArgumentException("A SelectStatementVisitor requires a non-null rule sink.");
+        }
+
+        if (tableStructure == null) {
+            throw new IllegalArgumentException(NULL_TABLE_STRUCTURE_MESSAGE);
         }
 
         this.tableStructure = tableStructure;
         this.output = output;
-        this.statements = new ArrayList<>();
+        this.context = context;
     }
 
     @Override
     public void visit(PlainSelect plainSelect) {
+        context.checkpoint();
 
         if (tableStructure.getSchema() != null) {
             tableStructure.addLayer(plainSelect.getFromItem(), plainSelect.getJoins());
         }
 
-        plainSelect = handleJoins(plainSelect);
-        handleWhere(plainSelect);
-        handleAggregators(plainSelect);
-        handleGroupBy(plainSelect);
-        handleHaving(plainSelect);
-
-        handleSubqueries(plainSelect);
-
-        for (PlainSelect select : this.statements) {
-            applyNullReduction(select);
-            this.output.add(select.toString());
-        }
+        // The layer must also be removed if generation fails, so that the table structure can be reused.
+        // Disabled phases are skipped before they copy the select.
+        try {
+            if (context.isEnabled(Phase.JOINS)) {
+                context.enterPhase(Phase.JOINS);
+                try {
+                    plainSelect = handleJoins(plainSelect);
+                } finally {
+                    context.exitPhase();
+                }
+                context.checkpoint();
+            } else {
+                plainSelect = sanitizeJoins(plainSelect);
+            }
 
-        if (tableStructure.getSchema() != null) {
-            tableStructure.removeLayer();
+            PlainSelect select = plainSelect;
+            runPhase(Phase.WHERE, () -> handleWhere(select));
+            runPhase(Phase.AGGREGATES, () -> handleAggregators(select));
+            runPhase(Phase.GROUP_BY, () -> handleGroupBy(select));
+            runPhase(Phase.HAVING, () -> handleHaving(select));
+            if (context.isEnabled(Phase.SUBQUERIES)) {
+                context.enterPhase(Phase.SUBQUERIES);
+                try {
+                    handleSubqueries(select);
+                } finally {
+                    context.exitPhase();
+                }
+            }
+        } finally {
+            if (tableStructure.getSchema() != null) {
+                tableStructure.removeLayer();
+            }
         }
     }
 
@@ -85,13 +155,48 @@ public class SelectStatementVisitor extends SelectVisitorAdapter {
         }
     }
 
+    /**
+     * Runs the given phase if it is enabled, attributing the copying it does to it in the clone statistics of the run.
+     *
+     * @param phase the phase to run.
+     * @param handler the handler that runs the phase.
+     */
+    private void runPhase(Phase phase, Runnable handler) {
+        if (!context.isEnabled(phase)) {
+            return;
+        }
+
+        context.enterPhase(phase);
+        try {
+            handler.run();
+        } finally {
+            context.exitPhase();
+        }
+        context.checkpoint();
+    }
+
     /**
      * Generates coverage rules for the subqueries found in the given {@link PlainSelect}.
      *
      * @param plainSelect the plainSelect that needs to be covered.
      */
     private void handleSubqueries(PlainSelect plainSelect) {
-        this.output.addAll(coverSubqueries((PlainSelect) copy(plainSelect), tableStructure));
+        coverSubqueries((PlainSelect) copy(plainSelect), tableStructure, output, context);
+    }
+
+    /**
+     * Applies a null reduction to the given {@link PlainSelect} and passes the result to the {@code output} sink.
+     *
+     * @param plainSelect the generated rule to output.
+     * @param phase the phase that generated the rule, which is either {@link Phase#WHERE} or {@link Phase#HAVING}.
+     * @param template the template of the clauses that the rule shares with the other rules of the phase.
+     */
+    private void emit(PlainSelect plainSelect, Phase phase, RuleTemplate template) {
+        context.checkpoint();
+        applyNullReduction(plainSelect);
+
+        Expression target = phase == Phase.HAVING ? plainSelect.getHaving() : plainSelect.getWhere();
+        output.accept(new Rule(plainSelect, phase, target, template));
     }
 
     /**
@@ -134,7 +239,7 @@ public class SelectStatementVisitor extends SelectVisitorAdapter {
 
     /**
      * Generates coverage rules for the WHERE clause of the query that is being visited.
-     * The generated rules are stored in the {@code output} set.
+     * The generated rules are passed to the {@code output} sink.
      *
      * @param plainSelect the {@code PlainSelect} for which coverage targets need to be generated.
      */
@@ -156,35 +261,36 @@ public class SelectStatementVisitor extends SelectVisitorAdapter {
             }
 
             List<Expression> expressions = new ArrayList<>();
-            SelectExpressionVisitor selectExpressionVisitor = new SelectExpressionVisitor(expressions, tableStructure);
+            SelectExpressionVisitor selectExpressionVisitor =
+                new SelectExpressionVisitor(expressions, tableStructure, context);
 
             where.accept(selectExpressionVisitor);
             copy.setWhere(null);
+            RuleTemplate template = new RuleTemplate(copy);
             for (Expression expression : expressions) {
 
-                PlainSelect selectCopy = (PlainSelect) copy(copy);
+                PlainSelect selectCopy = copyPath(copy);
                 selectCopy.setWhere(expression);
-                statements.add(selectCopy);
+                emit(selectCopy, Phase.WHERE, template);
             }
         }
     }
 
     /**
      * Generates coverage rules for the Aggregate functions of the query that is being visited.
-     * The generated rules are stored in the {@code output} set.
+     * The generated rules are passed to the {@code output} sink.
      *
      * @param plainSelect the {@code PlainSelect} for which coverage targets need to be generated.
      */
     private void handleAggregators(PlainSelect plainSelect) {
-        AggregateFunctionsGenerator aggregateFunctionsGenerator = new AggregateFunctionsGenerator();
-        Set<String> outputAfterAggregator = aggregateFunctionsGenerator.generate((PlainSelect) copy(plainSelect));
-
-        output.addAll(outputAfterAggregator);
+        AggregateFunctionsGenerator aggregateFunctionsGenerator =
+            new AggregateFunctionsGenerator(context.getLeafInterner());
+        aggregateFunctionsGenerator.generate((PlainSelect) copy(plainSelect), output);
     }
 
     /**
      * Generates coverage rules for the GROUP BY clause of the query that is being visited.
-     * The generated rules are stored in the {@code output} set.
+     * The generated rules are passed to the {@code output} sink.
      *
      * @param plainSelect the {@code PlainSelect} for which coverage targets need to be generated.
      */
@@ -192,16 +298,14 @@ public class SelectStatementVisitor extends SelectVisitorAdapter {
         GroupByElement groupBy = plainSelect.getGroupBy();
 
         if (groupBy != null) {
-            GroupByGenerator groupByGeneratorExpression = new GroupByGenerator();
-            Set<String> outputAfterGroupBy = groupByGeneratorExpression.generate((PlainSelect) copy(plainSelect));
-
-            output.addAll(outputAfterGroupBy);
+            GroupByGenerator groupByGeneratorExpression = new GroupByGenerator(context.getLeafInterner());
+            groupByGeneratorExpression.generate((PlainSelect) copy(plainSelect), output);
         }
     }
 
     /**
      * Generates coverage rules for the HAVING clause of the query that is being visited.
-     * The generated rules are stored in the {@code output} set.
+     * The generated rules are passed to the {@code output} sink.
      *
      * @param plainSelect the {@code PlainSelect} for which coverage targets need to be generated.
      */
@@ -224,29 +328,30 @@ public class SelectStatementVisitor extends SelectVisitorAdapter {
             copy.setHaving(null);
 
             List<Expression> expressions = new ArrayList<>();
-            SelectExpressionVisitor selectExpressionVisitor = new SelectExpressionVisitor(expressions, tableStructure);
+            SelectExpressionVisitor selectExpressionVisitor =
+                new SelectExpressionVisitor(expressions, tableStructure, context);
 
             having.accept(selectExpressionVisitor);
+            RuleTemplate template = new RuleTemplate(copy);
             for (Expression expression : expressions) {
 
-                PlainSelect selectCopy = (PlainSelect) copy(copy);
+                PlainSelect selectCopy = copyPath(copy);
                 selectCopy.setHaving(expression);
-                statements.add(selectCopy);
+                emit(selectCopy, Phase.HAVING, template);
             }
         }
     }
 
     /**
      * Generates coverage rules for the JOIN operators of the query that is being visited.
-     * The generated rules are stored in the {@code output} set.
+     * The generated rules are passed to the {@code output} sink.
      *
      * @param plainSelect the {@code PlainSelect} for which coverage targets need to be generated.
      * @return The sanitized plainselect.
      */
     private PlainSelect handleJoins(PlainSelect plainSelect) {
-        JoinRulesGenerator joinRulesGenerator = new JoinRulesGenerator();
-        Set<String> out = joinRulesGenerator.generate((PlainSelect) copy(plainSelect), tableStructure);
-        output.addAll(out);
+        JoinRulesGenerator joinRulesGenerator = new JoinRulesGenerator(context);
+        joinRulesGenerator.generate((PlainSelect) copy(plainSelect), tableStructure, output);
 
         if (joinRulesGenerator.getSanitized() != null) {
             return (PlainSelect) copy(joinRulesGenerator.getSanitized());
@@ -255,4 +360,20 @@ public class SelectStatementVisitor extends SelectVisitorAdapter {
         }
     }
 
+    /**
+     * Turns the implicit inner joins of the query that is being visited into explicit ones, without generating rules
+     * for the joins, so that the other phases see the same select as when the JOIN phase is enabled.
+     *
+     * @param plainSelect the {@code PlainSelect} whose joins need to be sanitized.
+     * @return The sanitized plainselect.
+     */
+    private PlainSelect sanitizeJoins(PlainSelect plainSelect) {
+        List<Join> joins = plainSelect.getJoins();
+        if (joins == null || joins.isEmpty()) {
+            return plainSelect;
+        }
+
+        return new JoinRulesGenerator(context).sanitize((PlainSelect) copy(plainSelect), tableStructure);
+    }
+
 }
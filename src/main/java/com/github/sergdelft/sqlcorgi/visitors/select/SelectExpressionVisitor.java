@@ -1,8 +1,12 @@
 package com.github.sergdelft.sqlcorgi.visitors.select;
 
+import com.github.sergdelft.sqlcorgi.GenerationContext;
 import com.github.sergdelft.sqlcorgi.query.NumericValue;
+import com.github.sergdelft.sqlcorgi.query.ParameterOffset;
 import com.github.sergdelft.sqlcorgi.schema.TableStructure;
 import com.github.sergdelft.sqlcorgi.schema.TypeChecker;
+import com.github.sergdelft.sqlcorgi.util.FingerprintSet;
+import com.github.sergdelft.sqlcorgi.util.cloner.ExpressionCloner;
 import net.sf.jsqlparser.expression.*;
 import net.sf.jsqlparser.expression.operators.arithmetic.Addition;
 import net.sf.jsqlparser.expression.operators.arithmetic.Subtraction;
@@ -11,6 +15,8 @@ import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
 import net.sf.jsqlparser.expression.operators.relational.*;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.statement.select.SubSelect;
+import net.sf.jsqlparser.util.deparser.ExpressionDeParser;
+import net.sf.jsqlparser.util.deparser.SelectDeParser;
 import com.github.sergdelft.sqlcorgi.query.NumericDoubleValue;
 import com.github.sergdelft.sqlcorgi.query.NumericLongValue;
 
@@ -20,7 +26,6 @@ import java.util.List;
 import java.util.Set;
 
 import static com.github.sergdelft.sqlcorgi.util.Expressions.createEqualsTo;
-import static com.github.sergdelft.sqlcorgi.util.cloner.ExpressionCloner.copy;
 
 /**
  * A visitor for select expressions, i.e. {@code WHERE} and {@code HAVING} clauses in {@code SELECT} statements.
@@ -28,6 +33,7 @@ import static com.github.sergdelft.sqlcorgi.util.cloner.ExpressionCloner.copy;
 public class SelectExpressionVisitor extends ExpressionVisitorAdapter {
     private List<Expression> output;
     private TableStructure tableStructure;
+    private GenerationContext context;
 
     /**
      * Creates a new visitor which can be used to generate mutations of select operators. Any rules that are
@@ -37,7 +43,20 @@ public class SelectExpressionVisitor extends ExpressionVisitorAdapter {
      * @param tableStructure the table structure to use for the query that is being visited.
      */
     public SelectExpressionVisitor(List<Expression> output, TableStructure tableStructure) {
+        this(output, tableStructure, new GenerationContext());
+    }
+
+    /**
+     * Creates a new visitor which can be used to generate mutations of select operators as part of the given run. Any
+     * rules that are generated will be written to {@code output}.
+     *
+     * @param output the set to which generated rules should be written. This set must not be null, and must be empty.
+     * @param tableStructure the table structure to use for the query that is being visited.
+     * @param context the context of the run, which is checked before each compound condition is mutated.
+     */
+    public SelectExpressionVisitor(List<Expression> output, TableStructure tableStructure, GenerationContext context) {
         this.tableStructure = tableStructure;
+        this.context = context;
         if (output == null || !output.isEmpty()) {
             throw new IllegalArgumentException(
                 "A SelectExpressionVisitor requires an empty, non-null set to which it can write generated expressions."
@@ -56,7 +75,7 @@ public class SelectExpressionVisitor extends ExpressionVisitorAdapter {
 
         Set<Expression> output = new HashSet<>(generateIsNullCases(comparisonOperator));
 
-        com.github.sergdelft.sqlcorgi.schema.Column.DataType type = checkTypes(comparisonOperator.getRightExpression());
+        com.github.sergdelft.sqlcorgi.schema.Column.DataType type = checkOperandTypes(comparisonOperator);
         switch (type) {
             case NUM: output.addAll(generateNumericCases(comparisonOperator));
                 break;
@@ -130,7 +149,8 @@ public class SelectExpressionVisitor extends ExpressionVisitorAdapter {
     }
 
     /**
-     * Generates the off by one case for the given expression, where one is added.
+     * Generates the off by one case for the given expression, where one is added. If the expression is a parameter,
+     * the addition is marked as a {@link ParameterOffset}.
      *
      * @param expression The expression from which one is to be added.
      * @return The addition expression.
@@ -138,27 +158,39 @@ public class SelectExpressionVisitor extends ExpressionVisitorAdapter {
     // This warning is suppressed, as "1" should indeed occur multiple times in the class.
     @SuppressWarnings("MultipleStringLiterals")
     private Expression generateAddOffByOne(Expression expression) {
-        Addition addition = new Addition();
+        Addition addition = isParameter(expression) ? new ParameterOffset.Increment() : new Addition();
         addition.setLeftExpression(copy(expression));
-        addition.setRightExpression(new NumericLongValue("1"));
+        addition.setRightExpression(context.getLeafInterner().intern(new NumericLongValue("1")));
 
         return addition;
     }
 
     /**
-     * Generates the off by one case for the given expression, where one is subtracted.
+     * Generates the off by one case for the given expression, where one is subtracted. If the expression is a
+     * parameter, the subtraction is marked as a {@link ParameterOffset}.
      *
      * @param expression The expression from which one is to be subtracted.
      * @return The subtraction expression.
      */
     private Expression generateSubOffByOne(Expression expression) {
-        Subtraction subtraction = new Subtraction();
+        Subtraction subtraction = isParameter(expression) ? new ParameterOffset.Decrement() : new Subtraction();
         subtraction.setLeftExpression(copy(expression));
-        subtraction.setRightExpression(new NumericLongValue("1"));
+        subtraction.setRightExpression(context.getLeafInterner().intern(new NumericLongValue("1")));
 
         return subtraction;
     }
 
+    /**
+     * Copies the given expression for use in a rule. The leaves of the copy are interned by the context of the run,
+     * so that the rules of a query share their equal columns and literals.
+     *
+     * @param expression the expression to copy.
+     * @return a copy of {@code expression} with interned leaves.
+     */
+    private Expression copy(Expression expression) {
+        return ExpressionCloner.copy(expression, context.getLeafInterner());
+    }
+
     /**
      * Generates the rules in case strings are used.
      *
@@ -213,12 +245,49 @@ public class SelectExpressionVisitor extends ExpressionVisitorAdapter {
         return dataType;
     }
 
+    /**
+     * Returns the data type of the operands of the given comparison. The type is taken from the right operand, unless
+     * it is a JDBC parameter, whose type is only known once it is bound. In that case, the type of the left operand is
+     * used, so that a parameter compared to a numeric column gets boundary rules relative to the parameter.
+     *
+     * @param comparison the comparison to check.
+     * @return the type of the operands.
+     */
+    private com.github.sergdelft.sqlcorgi.schema.Column.DataType checkOperandTypes(BinaryExpression comparison) {
+        if (isParameter(comparison.getRightExpression())) {
+            return checkTypes(comparison.getLeftExpression());
+        }
+
+        return checkTypes(comparison.getRightExpression());
+    }
+
+    /**
+     * Returns whether the given expression is numeric.
+     *
+     * @param expression the expression to check.
+     * @return {@code true} if the data type of the expression is numeric.
+     */
+    private boolean isNumeric(Expression expression) {
+        return checkTypes(expression) == com.github.sergdelft.sqlcorgi.schema.Column.DataType.NUM;
+    }
+
+    /**
+     * Returns whether the given expression is a positional or named JDBC parameter.
+     *
+     * @param expression the expression to check.
+     * @return {@code true} if the expression is a parameter.
+     */
+    private static boolean isParameter(Expression expression) {
+        return expression instanceof JdbcParameter || expression instanceof JdbcNamedParameter;
+    }
+
     /**
      * Generates mutations for conditions containing {@link OrExpression}s and {@link AndExpression}s.
      *
      * @param expression an {@link OrExpression} or {@link AndExpression}.
      */
     private void generateCompoundMutations(BinaryExpression expression) {
+        context.checkpoint();
 
         Expression left = expression.getLeftExpression();
         Expression right = expression.getRightExpression();
@@ -239,8 +308,9 @@ public class SelectExpressionVisitor extends ExpressionVisitorAdapter {
         if (expression instanceof OrExpression) {
             neutralExpression = new NotExpression(neutralExpression);
         }
+        List<Expression> mutations = new ArrayList<>(leftOut.size() + rightOut.size());
         for (Expression decisionExpression : leftOut) {
-            this.output.add(copy(new AndExpression(new Parenthesis(decisionExpression), neutralExpression)));
+            mutations.add(new AndExpression(new Parenthesis(decisionExpression), neutralExpression));
         }
 
         neutralExpression = left instanceof Parenthesis ? left : new Parenthesis(left);
@@ -248,8 +318,53 @@ public class SelectExpressionVisitor extends ExpressionVisitorAdapter {
             neutralExpression = new NotExpression(neutralExpression);
         }
         for (Expression decisionExpression : rightOut) {
-            this.output.add(copy(new AndExpression(neutralExpression, new Parenthesis(decisionExpression))));
+            mutations.add(new AndExpression(neutralExpression, new Parenthesis(decisionExpression)));
         }
+
+        // Each mutation becomes a rule, so mutations beyond the remaining rule budget are never copied. Duplicates
+        // only become a single rule, so they are only left out once the distinct mutations exceed the budget.
+        int limit = context.getRemainingRules();
+        if (mutations.size() > limit) {
+            mutations = distinct(mutations, limit + 1);
+            if (mutations.size() > limit) {
+                context.markTruncated();
+                mutations = mutations.subList(0, limit);
+            }
+        }
+
+        for (Expression mutation : mutations) {
+            this.output.add(copy(mutation));
+        }
+    }
+
+    /**
+     * Returns the distinct mutations among the given mutations, in their original order, until the given number has
+     * been found. Mutations are distinct if their text is, which is compared by fingerprint.
+     *
+     * @param mutations the mutations to select the distinct mutations from.
+     * @param max the maximum number of distinct mutations to return.
+     * @return the first distinct mutations, at most {@code max} of them.
+     */
+    private static List<Expression> distinct(List<Expression> mutations, int max) {
+        StringBuilder buffer = new StringBuilder();
+        ExpressionDeParser deParser = new ExpressionDeParser();
+        deParser.setSelectVisitor(new SelectDeParser(deParser, buffer));
+        deParser.setBuffer(buffer);
+
+        FingerprintSet fingerprints = new FingerprintSet();
+        List<Expression> result = new ArrayList<>();
+        for (Expression mutation : mutations) {
+            buffer.setLength(0);
+            mutation.accept(deParser);
+            if (fingerprints.add(buffer)) {
+                result.add(mutation);
+                if (result.size() == max) {
+                    break;
+                }
+            }
+        }
+
+        return result;
     }
 
     @Override
@@ -313,27 +428,31 @@ public class SelectExpressionVisitor extends ExpressionVisitorAdapter {
         Expression start = between.getBetweenExpressionStart();
         Expression end = between.getBetweenExpressionEnd();
 
-        output.add(createEqualsTo(left, start));
-        output.add(createEqualsTo(left, end));
+        output.add(createEqualsTo(left, start, context.getLeafInterner()));
+        output.add(createEqualsTo(left, end, context.getLeafInterner()));
 
         if (start instanceof LongValue) {
             NumericLongValue longValue = new NumericLongValue(start.toString());
-            EqualsTo leftOffPoint = createEqualsTo(left, longValue.add(-1));
+            EqualsTo leftOffPoint = createEqualsTo(left, longValue.add(-1), context.getLeafInterner());
             output.add(leftOffPoint);
         } else if (start instanceof DoubleValue) {
             NumericDoubleValue doubleValue = new NumericDoubleValue(start.toString());
-            EqualsTo leftOffPoint = createEqualsTo(left, doubleValue.add(-1));
+            EqualsTo leftOffPoint = createEqualsTo(left, doubleValue.add(-1), context.getLeafInterner());
             output.add(leftOffPoint);
+        } else if (isParameter(start) && isNumeric(left)) {
+            output.add(createEqualsTo(left, generateSubOffByOne(start), context.getLeafInterner()));
         }
 
         if (end instanceof LongValue) {
             NumericLongValue longValue = new NumericLongValue(end.toString());
-            EqualsTo rightOffPoint = createEqualsTo(left, longValue.add(1));
+            EqualsTo rightOffPoint = createEqualsTo(left, longValue.add(1), context.getLeafInterner());
             output.add(rightOffPoint);
         } else if (end instanceof DoubleValue) {
             NumericDoubleValue doubleValue = new NumericDoubleValue(end.toString());
-            EqualsTo rightOffPoint = createEqualsTo(left, doubleValue.add(1));
+            EqualsTo rightOffPoint = createEqualsTo(left, doubleValue.add(1), context.getLeafInterner());
             output.add(rightOffPoint);
+        } else if (isParameter(end) && isNumeric(left)) {
+            output.add(createEqualsTo(left, generateAddOffByOne(end), context.getLeafInterner()));
         }
 
         Between betweenNormal = (Between) copy(between);
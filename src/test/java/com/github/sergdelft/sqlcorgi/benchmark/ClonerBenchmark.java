@@ -0,0 +1,88 @@
+package com.github.sergdelft.sqlcorgi.benchmark;
+
+import com.github.sergdelft.sqlcorgi.util.Parsers;
+import com.github.sergdelft.sqlcorgi.util.cloner.ExpressionCloner;
+import com.github.sergdelft.sqlcorgi.util.cloner.SelectCloner;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the number of bytes that {@link ExpressionCloner#copy(Expression)} and
+ * {@link SelectCloner#copy(net.sf.jsqlparser.statement.select.SelectBody)} allocate per copy, using the allocation
+ * counter of the JVM. The cloners are used for small expressions thousands of times per query, so any allocation
+ * beyond the copied nodes themselves shows up here. It is not run as part of the test suite; run its {@code main}
+ * method directly, optionally passing the number of iterations per round.
+ */
+public final class ClonerBenchmark {
+
+    private static final String QUERY =
+        "SELECT a, COUNT(b) FROM t INNER JOIN u ON t.a = u.a WHERE a > 1 AND b LIKE 'x%' GROUP BY a ORDER BY a";
+
+    private static final int DEFAULT_ITERATIONS = 200_000;
+    private static final int ROUNDS = 5;
+
+    /**
+     * Receives the copies, so that the JIT cannot eliminate the copying as dead code.
+     */
+    private static volatile int sink;
+
+    /**
+     * No instances of this class can be created.
+     */
+    private ClonerBenchmark() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Runs the benchmark. The first round serves as warm-up and is not reported.
+     *
+     * @param args optionally, the number of iterations per round.
+     * @throws JSQLParserException if the query cannot be parsed.
+     */
+    @SuppressWarnings("checkstyle:UncommentedMain")
+    public static void main(String[] args) throws JSQLParserException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+
+        PlainSelect select = (PlainSelect) ((Select) Parsers.parse(QUERY)).getSelectBody();
+        Expression column = select.getGroupBy().getGroupByExpressions().get(0);
+        Expression where = select.getWhere();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long columnBytes = allocatedBytes();
+            for (int i = 0; i < iterations; i++) {
+                sink += ExpressionCloner.copy(column).hashCode();
+            }
+
+            long whereBytes = allocatedBytes();
+            for (int i = 0; i < iterations; i++) {
+                sink += ExpressionCloner.copy(where).hashCode();
+            }
+
+            long selectBytes = allocatedBytes();
+            for (int i = 0; i < iterations; i++) {
+                sink += SelectCloner.copy(select).hashCode();
+            }
+            long end = allocatedBytes();
+
+            if (round > 0) {
+                System.out.printf("round %d: column %d B/copy, where %d B/copy, select %d B/copy%n", round,
+                    (whereBytes - columnBytes) / iterations, (selectBytes - whereBytes) / iterations,
+                    (end - selectBytes) / iterations);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes that the current thread has allocated so far.
+     *
+     * @return the number of allocated bytes.
+     */
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
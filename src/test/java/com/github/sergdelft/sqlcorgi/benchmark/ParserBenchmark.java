@@ -0,0 +1,97 @@
+package com.github.sergdelft.sqlcorgi.benchmark;
+
+import com.github.sergdelft.sqlcorgi.util.Parsers;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.Statement;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the parsing throughput of {@link Parsers}, which reuses a parser per thread, with that of
+ * {@link CCJSqlParserUtil}, which creates a new parser for every query. It is not run as part of the test suite; run
+ * its {@code main} method directly, optionally passing the number of iterations per round.
+ */
+public final class ParserBenchmark {
+
+    private static final String[] QUERIES = {
+        "SELECT * FROM Movies",
+        "SELECT title, year FROM Movies WHERE year > 1990 AND Director LIKE 'S%'",
+        "SELECT a, COUNT(b) FROM t WHERE c BETWEEN 1 AND 10 GROUP BY a HAVING COUNT(b) > 1",
+        "SELECT t.a FROM t INNER JOIN Movies ON t.b = Movies.title LEFT JOIN t t2 ON t2.a = t.c",
+        "SELECT * FROM t WHERE a IN (SELECT year FROM Movies WHERE title IS NOT NULL) OR b = 'x'",
+    };
+
+    private static final int DEFAULT_ITERATIONS = 20_000;
+    private static final int ROUNDS = 5;
+
+    /**
+     * Receives the results of the parser, so that the JIT cannot eliminate the parsing as dead code.
+     */
+    private static volatile int sink;
+
+    /**
+     * No instances of this class can be created.
+     */
+    private ParserBenchmark() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Runs the benchmark. The first round of each parser serves as warm-up and is not reported.
+     *
+     * @param args optionally, the number of iterations per round.
+     * @throws JSQLParserException if one of the queries cannot be parsed.
+     */
+    @SuppressWarnings("checkstyle:UncommentedMain")
+    public static void main(String[] args) throws JSQLParserException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            double perCall = measure(CCJSqlParserUtil::parse, iterations);
+            double reused = measure(Parsers::parse, iterations);
+
+            if (round > 0) {
+                System.out.printf("round %d: per call %.0f queries/s, reused %.0f queries/s (%.2fx)%n",
+                    round, perCall, reused, reused / perCall);
+            }
+        }
+    }
+
+    /**
+     * Parses all queries the given number of times.
+     *
+     * @param parser the parser to measure.
+     * @param iterations the number of times to parse every query.
+     * @return the number of queries parsed per second.
+     * @throws JSQLParserException if one of the queries cannot be parsed.
+     */
+    private static double measure(Parser parser, int iterations) throws JSQLParserException {
+        long start = System.nanoTime();
+
+        for (int i = 0; i < iterations; i++) {
+            for (String query : QUERIES) {
+                sink += parser.parse(query).hashCode();
+            }
+        }
+
+        long elapsed = Math.max(1, System.nanoTime() - start);
+        return (double) iterations * QUERIES.length * TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    /**
+     * A way of parsing a query.
+     */
+    @FunctionalInterface
+    private interface Parser {
+
+        /**
+         * Parses a query.
+         *
+         * @param sql the query to parse.
+         * @return the parsed query.
+         * @throws JSQLParserException if the query cannot be parsed.
+         */
+        Statement parse(String sql) throws JSQLParserException;
+    }
+}
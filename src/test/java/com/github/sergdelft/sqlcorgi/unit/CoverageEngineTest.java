@@ -0,0 +1,477 @@
+package com.github.sergdelft.sqlcorgi.unit;
+
+import com.github.sergdelft.sqlcorgi.CloneStatistics;
+import com.github.sergdelft.sqlcorgi.CoverageEngine;
+import com.github.sergdelft.sqlcorgi.ErrorCode;
+import com.github.sergdelft.sqlcorgi.GenerationBudget;
+import com.github.sergdelft.sqlcorgi.GenerationOptions;
+import com.github.sergdelft.sqlcorgi.GenerationResult;
+import com.github.sergdelft.sqlcorgi.ParseLimits;
+import com.github.sergdelft.sqlcorgi.Phase;
+import com.github.sergdelft.sqlcorgi.Rule;
+import com.github.sergdelft.sqlcorgi.RuleCache;
+import com.github.sergdelft.sqlcorgi.SQLCorgi;
+import com.github.sergdelft.sqlcorgi.schema.Schema;
+import com.github.sergdelft.sqlcorgi.schema.UnknownTableException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static com.github.sergdelft.sqlcorgi.AssertUtils.makeSchema;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Unit tests for the {@link CoverageEngine}.
+ */
+class CoverageEngineTest {
+
+    private static final String QUERY = "SELECT title FROM Movies WHERE year > 2000 AND Director = 'Nolan'";
+    private static final String SUBQUERY_QUERY = "SELECT * FROM t WHERE a IN (SELECT c FROM t WHERE c > 20)";
+    private static final String INVALID_QUERY = "SELECT FROM WHERE";
+    private static final String NON_SELECT_QUERY = "DELETE FROM t";
+    private static final int LONG_CONDITION_TERMS = 50;
+
+    /**
+     * Assert that an engine generates the same rules as {@link SQLCorgi#generateRules(String, Schema)}.
+     */
+    @Test
+    void testGenerateRulesMatchesSQLCorgi() {
+        Schema schema = makeSchema();
+        CoverageEngine engine = new CoverageEngine(schema);
+
+        assertThat(engine.generateRules(QUERY)).isEqualTo(SQLCorgi.generateRules(QUERY, schema));
+    }
+
+    /**
+     * Assert that a query that references an unknown table does not affect later queries served by the same engine.
+     */
+    @Test
+    void testEngineIsReusableAfterFailure() {
+        CoverageEngine engine = new CoverageEngine(makeSchema());
+        Set<String> expected = engine.generateRules(QUERY);
+
+        assertThatExceptionOfType(UnknownTableException.class).isThrownBy(
+            () -> engine.generateRules("SELECT * FROM Movies JOIN unknown ON Movies.year = unknown.a")
+        );
+        assertThat(engine.generateRules(QUERY)).isEqualTo(expected);
+    }
+
+    /**
+     * Assert that an engine without a schema treats all attributes as not nullable.
+     */
+    @Test
+    void testEngineWithoutSchema() {
+        CoverageEngine engine = new CoverageEngine(null);
+        String query = "SELECT * FROM t WHERE a = 5";
+
+        assertThat(engine.generateRules(query)).containsExactlyInAnyOrder(
+            "SELECT * FROM t WHERE a = 4",
+            query,
+            "SELECT * FROM t WHERE a = 6"
+        );
+    }
+
+    /**
+     * Assert that generating rules by way of a template yields the same rules as generating them directly, including
+     * the off-by-one boundary values.
+     *
+     * @param query the query to generate rules for.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"SELECT * FROM Movies WHERE year > 1999", "SELECT * FROM t WHERE a = -0.5 OR c < 3",
+        "SELECT * FROM t WHERE a BETWEEN -1 AND 14.3", "SELECT * FROM t WHERE b = 'it''s' AND a IN (1, 1, 2)",
+        "SELECT * FROM t WHERE a IN (SELECT c FROM t WHERE c > 20) GROUP BY a HAVING COUNT(*) > 3"})
+    void testGenerateRulesFromTemplateMatchesDirectGeneration(String query) {
+        CoverageEngine engine = new CoverageEngine(makeSchema());
+
+        assertThat(engine.generateRulesFromTemplate(query)).isEqualTo(engine.generateRules(query));
+    }
+
+    /**
+     * Assert that queries which only differ in their literals are served from the same cached template.
+     */
+    @Test
+    void testTemplateIsSharedThroughCache() {
+        RuleCache cache = new RuleCache(Integer.MAX_VALUE);
+        CoverageEngine engine = new CoverageEngine(makeSchema(), cache);
+
+        engine.generateRulesFromTemplate("SELECT * FROM Movies WHERE year > 1000");
+        Set<String> rules = engine.generateRulesFromTemplate("SELECT * FROM Movies WHERE year > 2500");
+
+        assertThat(rules).contains("SELECT * FROM Movies WHERE year = 2499", "SELECT * FROM Movies WHERE year = 2501");
+        assertThat(cache.getHitCount()).isEqualTo(1);
+    }
+
+    /**
+     * Assert that the asynchronous variant completes with the same rules as the synchronous one.
+     */
+    @Test
+    void testGenerateRulesAsyncMatchesGenerateRules() {
+        CoverageEngine engine = new CoverageEngine(makeSchema());
+
+        assertThat(engine.generateRulesAsync(QUERY, Runnable::run).join()).isEqualTo(engine.generateRules(QUERY));
+    }
+
+    /**
+     * Assert that a task whose future has been cancelled before it runs does not generate any rules.
+     */
+    @Test
+    void testCancelledAsyncGenerationDoesNoWork() {
+        RuleCache cache = new RuleCache(Integer.MAX_VALUE);
+        CoverageEngine engine = new CoverageEngine(makeSchema(), cache);
+        List<Runnable> tasks = new ArrayList<>();
+
+        CompletableFuture<Set<String>> future = engine.generateRulesAsync(QUERY, tasks::add);
+        future.cancel(false);
+        tasks.forEach(Runnable::run);
+
+        assertThat(future).isCancelled();
+        assertThat(cache.getMissCount()).isZero();
+    }
+
+    /**
+     * Assert that a run without limits is not truncated and yields all rules.
+     */
+    @Test
+    void testUnlimitedBudgetIsNotTruncated() {
+        CoverageEngine engine = new CoverageEngine(makeSchema());
+        GenerationResult result = engine.generateResult(QUERY, GenerationBudget.UNLIMITED);
+
+        assertThat(result.isTruncated()).isFalse();
+        assertThat(result.getRules()).isEqualTo(engine.generateRules(QUERY));
+    }
+
+    /**
+     * Assert that generation stops once the maximum number of rules has been generated.
+     */
+    @Test
+    void testRuleBudgetTruncatesResult() {
+        CoverageEngine engine = new CoverageEngine(makeSchema());
+        GenerationResult result = engine.generateResult(QUERY, new GenerationBudget(2, null, Integer.MAX_VALUE));
+
+        assertThat(result.isTruncated()).isTrue();
+        assertThat(result.getRules()).hasSize(2);
+        assertThat(engine.generateRules(QUERY)).containsAll(result.getRules());
+    }
+
+    /**
+     * Assert that a run whose rule budget equals the number of rules it generates is complete, and not truncated.
+     *
+     * @param query the query to generate rules for.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {QUERY, SUBQUERY_QUERY,
+        "SELECT * FROM Movies LEFT JOIN t ON Movies.year = t.a WHERE t.b = 'x'",
+        "SELECT * FROM t WHERE a = 1 OR b = 'x' AND c BETWEEN 1 AND 5"})
+    void testExactRuleBudgetIsNotTruncated(String query) {
+        CoverageEngine engine = new CoverageEngine(makeSchema());
+        Set<String> rules = engine.generateRules(query);
+
+        GenerationBudget budget = new GenerationBudget(rules.size(), null, Integer.MAX_VALUE);
+        GenerationResult result = engine.generateResult(query, budget);
+
+        assertThat(result.isTruncated()).isFalse();
+        assertThat(result.getRules()).isEqualTo(rules);
+    }
+
+    /**
+     * Assert that the mutations of a condition are not built beyond the rule budget, while the rules that are output
+     * are still the first rules of an unlimited run.
+     */
+    @Test
+    void testRuleBudgetLimitsMutationsOfCondition() {
+        StringBuilder query = new StringBuilder("SELECT * FROM t WHERE a = 0");
+        for (int i = 1; i < LONG_CONDITION_TERMS; i++) {
+            query.append(" AND a = ").append(i);
+        }
+        CoverageEngine engine = new CoverageEngine(makeSchema());
+
+        GenerationResult limited = engine.generateResult(query.toString(), new GenerationBudget(2, null, 0));
+        GenerationResult unlimited = engine.generateResult(query.toString(), GenerationBudget.UNLIMITED);
+
+        assertThat(limited.isTruncated()).isTrue();
+        assertThat(unlimited.getRules()).containsAll(limited.getRules());
+        assertThat(limited.getCloneStatistics().getClonedNodes(Phase.WHERE) * LONG_CONDITION_TERMS)
+            .isLessThan(unlimited.getCloneStatistics().getClonedNodes(Phase.WHERE));
+    }
+
+    /**
+     * Assert that subqueries nested deeper than the budget allows are not covered, while the rest of the query is.
+     */
+    @Test
+    void testSubqueryDepthBudgetSkipsSubqueries() {
+        CoverageEngine engine = new CoverageEngine(makeSchema());
+        GenerationResult result = engine.generateResult(SUBQUERY_QUERY,
+            new GenerationBudget(Integer.MAX_VALUE, null, 0));
+
+        assertThat(result.isTruncated()).isTrue();
+        assertThat(result.getRules()).isNotEmpty().allMatch(rule -> !rule.contains("EXISTS"));
+        assertThat(engine.generateRules(SUBQUERY_QUERY)).containsAll(result.getRules());
+    }
+
+    /**
+     * Assert that generation stops once the time budget has been exhausted.
+     */
+    @Test
+    void testTimeBudgetTruncatesResult() {
+        CoverageEngine engine = new CoverageEngine(makeSchema());
+        GenerationResult result = engine.generateResult(QUERY,
+            new GenerationBudget(Integer.MAX_VALUE, Duration.ofNanos(1), Integer.MAX_VALUE));
+
+        assertThat(result.isSuccessful()).isTrue();
+        assertThat(result.isTruncated()).isTrue();
+    }
+
+    /**
+     * Assert that the rules of the phases that run on their own add up to the rules of a run with all phases enabled,
+     * which means that disabling phases does not affect the rules of the other phases. Subqueries are left out, since
+     * their rules depend on the phases that are enabled for the subqueries themselves.
+     *
+     * @param query the query to generate rules for.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"SELECT * FROM Movies LEFT JOIN t ON Movies.year = t.a WHERE t.b = 'x'",
+        "SELECT * FROM Movies, t WHERE Movies.year = t.a AND t.c > 3",
+        "SELECT a, COUNT(c) FROM t WHERE b = 'y' GROUP BY a HAVING COUNT(c) > 1"})
+    void testSinglePhasesAddUpToAllPhases(String query) {
+        Set<String> rules = new HashSet<>();
+        for (Phase phase : Phase.values()) {
+            GenerationOptions options = new GenerationOptions(Collections.singleton(phase));
+            rules.addAll(new CoverageEngine(makeSchema(), null, options).generateRules(query));
+        }
+
+        assertThat(rules).isEqualTo(new CoverageEngine(makeSchema()).generateRules(query));
+    }
+
+    /**
+     * Assert that engines with different options do not serve each other's rules from a shared cache.
+     */
+    @Test
+    void testCacheIsKeyedOnOptions() {
+        RuleCache cache = new RuleCache(Integer.MAX_VALUE);
+        GenerationOptions whereOnly = new GenerationOptions(Collections.singleton(Phase.WHERE));
+
+        Set<String> all = new CoverageEngine(makeSchema(), cache).generateRules(SUBQUERY_QUERY);
+        Set<String> where = new CoverageEngine(makeSchema(), cache, whereOnly).generateRules(SUBQUERY_QUERY);
+
+        assertThat(where).isNotEmpty().isNotEqualTo(all);
+        assertThat(cache.getHitCount()).isZero();
+    }
+
+    /**
+     * Assert that structured rules render to exactly the rules that are generated as strings.
+     *
+     * @param query the query to generate rules for.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"SELECT * FROM Movies LEFT JOIN t ON Movies.year = t.a WHERE t.b = 'x'",
+        "SELECT a, COUNT(c) FROM t WHERE b = 'y' GROUP BY a HAVING COUNT(c) > 1", SUBQUERY_QUERY,
+        "SELECT * FROM t WHERE a > 1 HAVING b IN (SELECT b FROM t WHERE c < 4)"})
+    void testStructuredRulesRenderToStringRules(String query) {
+        CoverageEngine engine = new CoverageEngine(makeSchema());
+        List<Rule> rules = engine.generateStructuredRules(query);
+
+        assertThat(rules.stream().map(Rule::render).collect(Collectors.toSet())).isEqualTo(engine.generateRules(query));
+    }
+
+    /**
+     * Assert that structured rules are labeled with the phase that produced them, and target a predicate of their
+     * own query.
+     */
+    @Test
+    void testStructuredRulesHavePhaseAndTarget() {
+        List<Rule> rules = new CoverageEngine(makeSchema()).generateStructuredRules(
+            "SELECT a, COUNT(c) FROM t WHERE b = 'y' GROUP BY a");
+
+        assertThat(rules).extracting(Rule::getPhase).containsOnly(Phase.WHERE, Phase.AGGREGATES, Phase.GROUP_BY);
+        assertThat(rules).filteredOn(rule -> rule.getPhase() == Phase.WHERE)
+            .allMatch(rule -> rule.getTarget() == rule.getSelect().getWhere());
+    }
+
+    /**
+     * Assert that only the SELECT statements of a script are covered, in the order in which they appear, and that
+     * their rules match those of the individual queries.
+     */
+    @Test
+    void testGenerateRulesForScriptCoversSelectsInOrder() {
+        CoverageEngine engine = new CoverageEngine(makeSchema());
+        String script = "CREATE TABLE u (x INT);\n" + QUERY + ";\nINSERT INTO u VALUES (1);\n"
+            + "UPDATE t SET a = 1;\n" + SUBQUERY_QUERY + ";";
+
+        List<GenerationResult> results = engine.generateRulesForScript(script, 2);
+
+        assertThat(results).extracting(GenerationResult::getQuery).containsExactly(QUERY, SUBQUERY_QUERY);
+        assertThat(results.get(0).getRules()).isEqualTo(engine.generateRules(QUERY));
+        assertThat(results.get(1).getRules()).isEqualTo(engine.generateRules(SUBQUERY_QUERY));
+    }
+
+    /**
+     * Assert that a SELECT statement for which no rules can be generated does not abort the rest of the script.
+     */
+    @Test
+    void testGenerateRulesForScriptReportsFailuresPerStatement() {
+        CoverageEngine engine = new CoverageEngine(makeSchema());
+        String script = "SELECT * FROM unknown WHERE a = 1; " + QUERY;
+
+        List<GenerationResult> results = engine.generateRulesForScript(script, 1);
+
+        assertThat(results).extracting(GenerationResult::isSuccessful).containsExactly(false, true);
+        assertThat(results.get(0).getError()).isInstanceOf(UnknownTableException.class);
+    }
+
+    /**
+     * Assert that the results of a batch report why no rules could be generated for a query.
+     */
+    @Test
+    void testGenerateRulesBatchReportsErrorCodes() {
+        CoverageEngine engine = new CoverageEngine(makeSchema());
+        List<String> queries = Arrays.asList(QUERY, INVALID_QUERY, NON_SELECT_QUERY, "SELECT * FROM unknown");
+
+        List<GenerationResult> results = engine.generateRulesBatch(queries, 1);
+
+        assertThat(results).extracting(GenerationResult::getErrorCode).containsExactly(ErrorCode.NONE,
+            ErrorCode.PARSE_ERROR, ErrorCode.UNSUPPORTED_INPUT, ErrorCode.SCHEMA_MISMATCH);
+        assertThat(results.get(0).getErrorMessage()).isNull();
+    }
+
+    /**
+     * Assert that input that cannot be processed is reported through exceptions without a stack trace.
+     */
+    @Test
+    void testBadInputErrorsAreStackless() {
+        CoverageEngine engine = new CoverageEngine(makeSchema());
+
+        List<GenerationResult> results = engine.generateRulesBatch(Arrays.asList(INVALID_QUERY, NON_SELECT_QUERY), 1);
+
+        assertThat(results).allMatch(result -> result.getError().getStackTrace().length == 0);
+    }
+
+    /**
+     * Assert that a statement of a script that cannot be parsed is reported in its own result, instead of aborting
+     * the script.
+     */
+    @Test
+    void testGenerateRulesForScriptReportsUnparseableStatements() {
+        CoverageEngine engine = new CoverageEngine(makeSchema());
+        String commented = "-- a comment\n" + INVALID_QUERY;
+        String script = String.join(";\n", QUERY, commented, NON_SELECT_QUERY, SUBQUERY_QUERY);
+
+        List<GenerationResult> results = engine.generateRulesForScript(script, 1);
+
+        assertThat(results).extracting(GenerationResult::getErrorCode).containsExactly(ErrorCode.NONE,
+            ErrorCode.PARSE_ERROR, ErrorCode.NONE);
+        assertThat(results.get(1).getQuery()).isEqualTo(commented);
+        assertThat(results.get(2).getRules()).isEqualTo(engine.generateRules(SUBQUERY_QUERY));
+    }
+
+    /**
+     * Assert that queries that are too long or too deeply nested are rejected before they are parsed, while other
+     * queries are unaffected.
+     */
+    @Test
+    void testParseLimitsRejectLargeQueries() {
+        ParseLimits limits = new ParseLimits(QUERY.length(), 1, null);
+        CoverageEngine engine = new CoverageEngine(makeSchema(), null, GenerationOptions.ALL, null, limits);
+        String nested = SUBQUERY_QUERY.replace("c > 20", "(c > 20)");
+        List<String> queries = Arrays.asList(QUERY, QUERY + " AND year < 2010", nested);
+
+        List<GenerationResult> results = engine.generateRulesBatch(queries, 1);
+
+        assertThat(results).extracting(GenerationResult::getErrorCode).containsExactly(ErrorCode.NONE,
+            ErrorCode.PARSE_LIMIT_EXCEEDED, ErrorCode.PARSE_LIMIT_EXCEEDED);
+    }
+
+    /**
+     * Assert that a parse that exceeds the time limit is abandoned. The time limit is checked before every token, and
+     * the clock is bound to have advanced by more than a nanosecond before the parser has read all tokens of the
+     * query.
+     */
+    @Test
+    void testParseTimeLimitAbandonsParse() {
+        ParseLimits limits = new ParseLimits(Integer.MAX_VALUE, Integer.MAX_VALUE, Duration.ofNanos(1));
+        CoverageEngine engine = new CoverageEngine(makeSchema(), null, GenerationOptions.ALL, null, limits);
+        String query = SUBQUERY_QUERY + String.join("", Collections.nCopies(LONG_CONDITION_TERMS, " OR a = 1"));
+
+        GenerationResult result = engine.generateResult(query, GenerationBudget.UNLIMITED);
+
+        assertThat(result.getErrorCode()).isEqualTo(ErrorCode.PARSE_LIMIT_EXCEEDED);
+    }
+
+    /**
+     * Assert that the copying done while generating rules is attributed to the phases that did it.
+     */
+    @Test
+    void testCloneStatisticsAreAttributedToPhases() {
+        GenerationOptions whereOnly = new GenerationOptions(Collections.singleton(Phase.WHERE));
+        CoverageEngine engine = new CoverageEngine(makeSchema(), null, whereOnly);
+
+        CloneStatistics statistics = engine.generateResult(QUERY, GenerationBudget.UNLIMITED).getCloneStatistics();
+
+        assertThat(statistics.getClonedNodes(Phase.WHERE)).isPositive();
+        assertThat(statistics.getTotalClonedNodes()).isEqualTo(statistics.getClonedNodes(Phase.WHERE));
+        assertThat(statistics.getTotalAllocatedBytes()).isZero();
+    }
+
+    /**
+     * Assert that the bytes allocated by the phases are counted if the options ask for it, and that counting them does
+     * not change the rules.
+     */
+    @Test
+    void testAllocatedBytesAreCountedWhenEnabled() {
+        GenerationOptions counting = new GenerationOptions(Collections.singleton(Phase.WHERE), true);
+        GenerationOptions whereOnly = new GenerationOptions(Collections.singleton(Phase.WHERE));
+
+        GenerationResult result = new CoverageEngine(makeSchema(), null, counting)
+            .generateResult(QUERY, GenerationBudget.UNLIMITED);
+
+        assertThat(result.getCloneStatistics().getAllocatedBytes(Phase.WHERE)).isPositive();
+        assertThat(result.getRules()).isEqualTo(new CoverageEngine(makeSchema(), null, whereOnly)
+            .generateResult(QUERY, GenerationBudget.UNLIMITED).getRules());
+    }
+
+    /**
+     * Assert that the join rules are not copied when they are rendered right away, as they are when the rules of a
+     * query are collected as strings, but are copied when they are kept as structured rules.
+     */
+    @Test
+    void testJoinRulesAreOnlyCopiedWhenKept() {
+        GenerationOptions joinsOnly = new GenerationOptions(Collections.singleton(Phase.JOINS));
+        String query = "SELECT * FROM Movies LEFT JOIN t ON Movies.year = t.a WHERE t.b = 'x'";
+
+        CoverageEngine rendering = new CoverageEngine(makeSchema(), null, joinsOnly);
+        rendering.generateRules(query);
+        CoverageEngine keeping = new CoverageEngine(makeSchema(), null, joinsOnly);
+        List<Rule> rules = keeping.generateStructuredRules(query);
+
+        assertThat(rules).isNotEmpty();
+        assertThat(rendering.getCloneStatistics().getClonedNodes(Phase.JOINS))
+            .isLessThan(keeping.getCloneStatistics().getClonedNodes(Phase.JOINS));
+    }
+
+    /**
+     * Assert that the clone statistics of an engine add up the statistics of the queries it generated rules for.
+     */
+    @Test
+    void testEngineAddsUpCloneStatistics() {
+        CoverageEngine engine = new CoverageEngine(makeSchema());
+
+        long nodes = 0;
+        for (String query : Arrays.asList(QUERY, SUBQUERY_QUERY)) {
+            nodes += engine.generateResult(query, GenerationBudget.UNLIMITED).getCloneStatistics()
+                .getTotalClonedNodes();
+        }
+
+        assertThat(engine.getCloneStatistics().getTotalClonedNodes()).isPositive().isEqualTo(nodes);
+    }
+}
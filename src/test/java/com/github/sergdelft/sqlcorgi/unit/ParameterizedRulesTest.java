@@ -0,0 +1,96 @@
+package com.github.sergdelft.sqlcorgi.unit;
+
+import com.github.sergdelft.sqlcorgi.CoverageEngine;
+import com.github.sergdelft.sqlcorgi.ParameterizedRules;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.github.sergdelft.sqlcorgi.AssertUtils.makeSchema;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Unit tests for the {@link ParameterizedRules}.
+ */
+class ParameterizedRulesTest {
+
+    private static final String NAME = "name";
+    private static final String YEAR = "year";
+    private static final int PARAMETER_COUNT = 4;
+    private static final int A = 5;
+    private static final double C_START = 2.5;
+    private static final long C_END = 10L;
+    private static final int RELEASE_YEAR = 1999;
+
+    private final CoverageEngine engine = new CoverageEngine(makeSchema());
+
+    /**
+     * Assert that binding positional parameters yields the rules of the statement with its parameters inlined.
+     */
+    @Test
+    void testBindPositionalParameters() {
+        ParameterizedRules rules = engine.generateParameterizedRules(
+            "SELECT * FROM t WHERE a > ? AND b = ? AND c BETWEEN ? AND ?");
+
+        assertThat(rules.getParameterCount()).isEqualTo(PARAMETER_COUNT);
+        assertThat(rules.bind(Arrays.asList(A, "it's", C_START, C_END))).isEqualTo(engine.generateRules(
+            "SELECT * FROM t WHERE a > 5 AND b = 'it''s' AND c BETWEEN 2.5 AND 10"));
+    }
+
+    /**
+     * Assert that binding named parameters yields the rules of the statement with its parameters inlined.
+     */
+    @Test
+    void testBindNamedParameters() {
+        ParameterizedRules rules = engine.generateParameterizedRules(
+            "SELECT title FROM Movies WHERE year <= :year AND Director = :name");
+
+        Map<String, Object> values = new HashMap<>();
+        values.put(YEAR, RELEASE_YEAR);
+        values.put(NAME, "Nolan");
+
+        assertThat(rules.getParameterNames()).containsExactly(NAME, YEAR);
+        assertThat(rules.bind(values)).isEqualTo(engine.generateRules(
+            "SELECT title FROM Movies WHERE year <= 1999 AND Director = 'Nolan'"));
+    }
+
+    /**
+     * Assert that a binding without a value for every parameter is rejected.
+     */
+    @Test
+    void testBindRejectsMissingParameters() {
+        ParameterizedRules rules = engine.generateParameterizedRules("SELECT * FROM t WHERE a = ? OR b = :name");
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> rules.bind(Collections.emptyList(), Collections.singletonMap(NAME, "x")));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> rules.bind(Collections.singletonList(1)));
+    }
+
+    /**
+     * Assert that arithmetic of the statement itself on a parameter is kept, rather than folded as a generated
+     * boundary.
+     */
+    @Test
+    void testBindKeepsStatementArithmetic() {
+        ParameterizedRules rules = engine.generateParameterizedRules("SELECT * FROM t WHERE a = ? + 1 AND c > ? - 1");
+
+        assertThat(rules.bind(Arrays.asList(A, C_END))).isEqualTo(engine.generateRules(
+            "SELECT * FROM t WHERE a = 5 + 1 AND c > 10 - 1"));
+    }
+
+    /**
+     * Assert that the rules of a statement do not expose the markers of their generated boundaries.
+     */
+    @Test
+    void testRulesHaveNoBoundaryMarkers() {
+        ParameterizedRules rules = engine.generateParameterizedRules("SELECT * FROM t WHERE a > ?");
+
+        assertThat(rules.getRules()).contains("SELECT * FROM t WHERE a = ?1 + 1")
+            .noneMatch(rule -> rule.indexOf('\u0000') >= 0);
+    }
+}
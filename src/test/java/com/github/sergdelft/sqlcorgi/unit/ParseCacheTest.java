@@ -0,0 +1,85 @@
+package com.github.sergdelft.sqlcorgi.unit;
+
+import com.github.sergdelft.sqlcorgi.CoverageEngine;
+import com.github.sergdelft.sqlcorgi.GenerationOptions;
+import com.github.sergdelft.sqlcorgi.ParseCache;
+import com.github.sergdelft.sqlcorgi.RuleCache;
+import com.github.sergdelft.sqlcorgi.schema.Column;
+import com.github.sergdelft.sqlcorgi.schema.Schema;
+import com.github.sergdelft.sqlcorgi.schema.Table;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static com.github.sergdelft.sqlcorgi.AssertUtils.makeSchema;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Unit tests for the {@link ParseCache}.
+ */
+class ParseCacheTest {
+
+    private static final int SIZE = 8;
+    private static final String QUERY = "SELECT title FROM Movies WHERE year > 1990 AND Director IS NOT NULL";
+
+    /**
+     * Assert that an engine for a changed schema generates its rules from the cached parse of a query.
+     */
+    @Test
+    void testChangedSchemaReusesParsedQuery() {
+        ParseCache parseCache = new ParseCache(SIZE);
+        RuleCache ruleCache = new RuleCache(Integer.MAX_VALUE);
+        new CoverageEngine(makeSchema(), ruleCache, GenerationOptions.ALL, parseCache).generateRules(QUERY);
+
+        Table movies = new Table("Movies");
+        movies.addColumn(new Column("title", false, false, Column.DataType.STRING));
+        movies.addColumn(new Column("year", true, false, Column.DataType.NUM));
+        movies.addColumn(new Column("Director", true, false, Column.DataType.STRING));
+        Schema changedSchema = new Schema();
+        changedSchema.addTable(movies);
+
+        Set<String> rules = new CoverageEngine(changedSchema, ruleCache, GenerationOptions.ALL, parseCache)
+            .generateRules(QUERY);
+
+        assertThat(rules).isEqualTo(new CoverageEngine(changedSchema).generateRules(QUERY));
+        assertThat(parseCache.getHitCount()).isEqualTo(1);
+    }
+
+    /**
+     * Assert that generating rules from a cached parse does not affect later lookups of the same query.
+     */
+    @Test
+    void testCachedParseIsNotModified() {
+        CoverageEngine engine = new CoverageEngine(makeSchema(), null, GenerationOptions.ALL, new ParseCache(SIZE));
+
+        Set<String> first = engine.generateRules(QUERY);
+        Set<String> second = engine.generateRules(QUERY);
+        Set<String> third = engine.generateRules(QUERY);
+
+        assertThat(second).isEqualTo(first).isEqualTo(third);
+    }
+
+    /**
+     * Assert that the least recently used query is evicted once the cache is full.
+     */
+    @Test
+    void testLeastRecentlyUsedQueryIsEvicted() {
+        ParseCache parseCache = new ParseCache(1);
+        CoverageEngine engine = new CoverageEngine(makeSchema(), null, GenerationOptions.ALL, parseCache);
+
+        engine.generateRules(QUERY);
+        engine.generateRules("SELECT * FROM t WHERE a = 1");
+
+        assertThat(parseCache.size()).isEqualTo(1);
+        assertThat(parseCache.getEvictionCount()).isEqualTo(1);
+    }
+
+    /**
+     * Assert that the maximum size must be positive.
+     */
+    @Test
+    void testNonPositiveSizeIsRejected() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new ParseCache(0));
+    }
+}
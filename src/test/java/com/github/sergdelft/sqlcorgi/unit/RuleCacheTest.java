@@ -0,0 +1,101 @@
+package com.github.sergdelft.sqlcorgi.unit;
+
+import com.github.sergdelft.sqlcorgi.CoverageEngine;
+import com.github.sergdelft.sqlcorgi.RuleCache;
+import com.github.sergdelft.sqlcorgi.schema.Column;
+import com.github.sergdelft.sqlcorgi.schema.Schema;
+import com.github.sergdelft.sqlcorgi.schema.Table;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static com.github.sergdelft.sqlcorgi.AssertUtils.makeSchema;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Unit tests for the {@link RuleCache}.
+ */
+class RuleCacheTest {
+
+    private static final long LARGE_WEIGHT = 1L << Integer.SIZE;
+    private static final String POPULAR_QUERY = "SELECT * FROM t WHERE a = 1";
+    private static final String RARE_QUERY = "SELECT * FROM t WHERE c = 1";
+
+    /**
+     * Assert that queries which only differ in their layout are served from the cache.
+     */
+    @Test
+    void testRepeatedQueryIsServedFromCache() {
+        RuleCache cache = new RuleCache(LARGE_WEIGHT);
+        CoverageEngine engine = new CoverageEngine(makeSchema(), cache);
+
+        Set<String> first = engine.generateRules(POPULAR_QUERY);
+        Set<String> second = engine.generateRules("  SELECT *\n FROM t   WHERE a = 1");
+
+        assertThat(second).isEqualTo(first);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+    }
+
+    /**
+     * Assert that queries which only differ in their comments and the case of their keywords are served from the
+     * cache.
+     */
+    @Test
+    void testQueryWithDifferentKeywordCaseIsServedFromCache() {
+        RuleCache cache = new RuleCache(LARGE_WEIGHT);
+        CoverageEngine engine = new CoverageEngine(makeSchema(), cache);
+
+        Set<String> first = engine.generateRules(POPULAR_QUERY);
+        Set<String> second = engine.generateRules("select * /* popular */ from t where a = 1");
+
+        assertThat(second).isEqualTo(first);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+    }
+
+    /**
+     * Assert that the same query is cached separately for different schemas.
+     */
+    @Test
+    void testEntriesAreKeyedOnSchema() {
+        RuleCache cache = new RuleCache(LARGE_WEIGHT);
+        Table table = new Table("t");
+        table.addColumn(new Column("a", false, false, Column.DataType.NUM));
+        Schema otherSchema = new Schema();
+        otherSchema.addTable(table);
+
+        new CoverageEngine(makeSchema(), cache).generateRules(POPULAR_QUERY);
+        new CoverageEngine(otherSchema, cache).generateRules(POPULAR_QUERY);
+
+        assertThat(cache.getMissCount()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    /**
+     * Assert that a query that is requested once does not evict a query that is requested frequently.
+     */
+    @Test
+    void testRareQueryDoesNotEvictPopularQuery() {
+        RuleCache sizing = new RuleCache(LARGE_WEIGHT);
+        new CoverageEngine(makeSchema(), sizing).generateRules(POPULAR_QUERY);
+
+        RuleCache cache = new RuleCache(sizing.getWeight());
+        CoverageEngine engine = new CoverageEngine(makeSchema(), cache);
+        engine.generateRules(POPULAR_QUERY);
+        engine.generateRules(POPULAR_QUERY);
+        engine.generateRules(RARE_QUERY);
+        engine.generateRules(POPULAR_QUERY);
+
+        assertThat(cache.getHitCount()).isEqualTo(2);
+        assertThat(cache.getEvictionCount()).isZero();
+    }
+
+    /**
+     * Assert that a cache must have a positive maximum weight.
+     */
+    @Test
+    void testNonPositiveMaximumWeight() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new RuleCache(0));
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.sergdelft.sqlcorgi.unit;
+
+import com.github.sergdelft.sqlcorgi.RuleTemplate;
+import com.github.sergdelft.sqlcorgi.util.cloner.SelectCloner;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.select.Join;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the {@link RuleTemplate}.
+ */
+class RuleTemplateTest {
+
+    /**
+     * Assert that a template renders queries with other joins and conditions the same as {@code toString()} does.
+     *
+     * @param query the query to create the template from.
+     * @throws JSQLParserException if the query cannot be parsed.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"SELECT DISTINCT a FROM t WHERE a > 1 ORDER BY a",
+        "SELECT * FROM Movies LEFT JOIN t ON Movies.year = t.a, t AS u WHERE t.b = 'x' LIMIT 5",
+        "SELECT a, COUNT(c) FROM t WHERE b = 'y' GROUP BY a HAVING COUNT(c) > 1 ORDER BY a DESC",
+        "SELECT a FROM t", "SELECT 1"})
+    void testRenderMatchesToString(String query) throws JSQLParserException {
+        PlainSelect original = parse(query);
+        PlainSelect other = parse("SELECT * FROM t INNER JOIN Movies ON t.a = Movies.year, t AS v "
+            + "WHERE t.c IS NULL HAVING COUNT(*) > 1");
+        RuleTemplate template = new RuleTemplate(original);
+
+        PlainSelect variant = (PlainSelect) SelectCloner.copy(original);
+        variant.setJoins(other.getJoins());
+        variant.setWhere(other.getWhere());
+        variant.setHaving(other.getHaving());
+
+        assertThat(template.render(original)).isEqualTo(original.toString()).isEqualTo(parse(query).toString());
+        assertThat(template.render(variant)).isEqualTo(variant.toString());
+    }
+
+    /**
+     * Assert that creating a template leaves the query it is created from as it was.
+     *
+     * @throws JSQLParserException if the query cannot be parsed.
+     */
+    @Test
+    void testTemplateDoesNotModifyQuery() throws JSQLParserException {
+        String query = "SELECT a FROM t, Movies WHERE a > 1 HAVING COUNT(c) > 1";
+        PlainSelect original = parse(query);
+        List<Join> joins = original.getJoins();
+        Expression where = original.getWhere();
+
+        new RuleTemplate(original);
+
+        assertThat(original.getJoins()).isSameAs(joins);
+        assertThat(original.getWhere()).isSameAs(where);
+        assertThat(original.toString()).isEqualTo(query);
+    }
+
+    /**
+     * Parses a query.
+     *
+     * @param query the query to parse.
+     * @return the body of the parsed query.
+     * @throws JSQLParserException if the query cannot be parsed.
+     */
+    private static PlainSelect parse(String query) throws JSQLParserException {
+        return (PlainSelect) ((Select) CCJSqlParserUtil.parse(query)).getSelectBody();
+    }
+}
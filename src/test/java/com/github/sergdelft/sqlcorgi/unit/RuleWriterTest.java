@@ -0,0 +1,84 @@
+package com.github.sergdelft.sqlcorgi.unit;
+
+import com.github.sergdelft.sqlcorgi.CoverageEngine;
+import com.github.sergdelft.sqlcorgi.Rule;
+import com.github.sergdelft.sqlcorgi.RuleSink;
+import com.github.sergdelft.sqlcorgi.RuleWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static com.github.sergdelft.sqlcorgi.AssertUtils.makeSchema;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the {@link RuleWriter}.
+ */
+class RuleWriterTest {
+
+    private static final String LINE_BREAK = "\n";
+
+    private final CoverageEngine engine = new CoverageEngine(makeSchema());
+
+    /**
+     * Assert that a writer writes the same text as {@link Rule#render()}, one rule per line.
+     *
+     * @param query the query to generate rules for.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"SELECT * FROM Movies LEFT JOIN t ON Movies.year = t.a WHERE t.b = 'x'",
+        "SELECT a, COUNT(c) FROM t WHERE b = 'y' GROUP BY a HAVING COUNT(c) > 1",
+        "SELECT * FROM t WHERE a IN (SELECT c FROM t WHERE c > 20) AND b LIKE 'a%'",
+        "SELECT title FROM Movies WHERE year BETWEEN 1990 AND 2000 OR Director IS NULL"})
+    void testWriteMatchesRender(String query) {
+        StringBuilder expected = new StringBuilder();
+        StringBuilder output = new StringBuilder();
+        RuleWriter writer = new RuleWriter(output);
+        for (Rule rule : engine.generateStructuredRules(query)) {
+            expected.append(rule.render()).append('\n');
+            writer.accept(rule);
+        }
+
+        assertThat(output.toString()).isEqualTo(expected.toString());
+    }
+
+    /**
+     * Assert that a writer encodes the rules it writes to a stream as UTF-8.
+     *
+     * @throws IOException if the writer cannot be closed.
+     */
+    @Test
+    void testWriteToStream() throws IOException {
+        String query = "SELECT title FROM Movies WHERE Director = 'Truffaut' OR Director = 'Pedro Almodóvar'";
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+        try (RuleWriter writer = new RuleWriter(stream)) {
+            engine.generateRules(query, writer);
+            assertThat(writer.getRuleCount()).isPositive();
+        }
+
+        String[] lines = new String(stream.toByteArray(), StandardCharsets.UTF_8).split(LINE_BREAK);
+        assertThat(new HashSet<>(Arrays.asList(lines))).isEqualTo(engine.generateRules(query));
+    }
+
+    /**
+     * Assert that a deduplicating writer writes every distinct rule exactly once.
+     */
+    @Test
+    void testDeduplicatingWriter() {
+        String query = "SELECT title FROM Movies WHERE Director = 'Truffaut' OR Director = 'Varda'";
+        StringBuilder output = new StringBuilder();
+        RuleWriter writer = new RuleWriter(output);
+
+        engine.generateStructuredRules(query, RuleSink.deduplicating(writer)::accept);
+
+        assertThat(output.toString().split(LINE_BREAK)).doesNotHaveDuplicates()
+            .containsExactlyInAnyOrderElementsOf(engine.generateRules(query));
+    }
+}
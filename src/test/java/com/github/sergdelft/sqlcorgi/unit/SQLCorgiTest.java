@@ -1,13 +1,25 @@
 package com.github.sergdelft.sqlcorgi.unit;
 
+import com.github.sergdelft.sqlcorgi.CoverageEngine;
+import com.github.sergdelft.sqlcorgi.GenerationResult;
+import com.github.sergdelft.sqlcorgi.RuleCache;
 import com.github.sergdelft.sqlcorgi.SQLCorgi;
 import com.github.sergdelft.sqlcorgi.exceptions.CannotBeNullException;
 import com.github.sergdelft.sqlcorgi.exceptions.CannotBeParsedException;
 import com.github.sergdelft.sqlcorgi.exceptions.UnsupportedInputException;
+import com.github.sergdelft.sqlcorgi.schema.Schema;
+import com.github.sergdelft.sqlcorgi.schema.UnknownTableException;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
+import static com.github.sergdelft.sqlcorgi.AssertUtils.makeSchema;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
@@ -16,6 +28,10 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
  */
 class SQLCorgiTest {
 
+    private static final String INVALID_QUERY = "This is not a SQL Query";
+    private static final int BATCH_SIZE = 50;
+    private static final int PARALLELISM = 4;
+
     /**
      * Trying to invoke the {@link SQLCorgi} constructor should throw an {@code UnsupportedOperationException}.
      *
@@ -50,7 +66,7 @@ class SQLCorgiTest {
     void testGenerateRulesWithInvalidQueryShouldPrintErrorMessage() {
 
         assertThatExceptionOfType(CannotBeParsedException.class).isThrownBy(
-            () -> SQLCorgi.generateRules("This is not a SQL Query", null)
+            () -> SQLCorgi.generateRules(INVALID_QUERY, null)
         );
     }
 
@@ -65,4 +81,103 @@ class SQLCorgiTest {
             () -> SQLCorgi.generateRules("UPDATE Table1 SET column = value WHERE condition IS NOT NULL;", null)
         );
     }
+
+    /**
+     * Assert that {@link SQLCorgi#generateRulesBatch} returns a result for each query, in the order
+     * in which the queries were provided, and that each result matches the result of the single query variant.
+     */
+    @Test
+    void testGenerateRulesBatchPreservesOrder() {
+        Schema schema = makeSchema();
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            queries.add("SELECT * FROM Movies WHERE year > " + i);
+        }
+
+        List<GenerationResult> results = SQLCorgi.generateRulesBatch(queries, schema, PARALLELISM);
+
+        assertThat(results).extracting(GenerationResult::getQuery).isEqualTo(queries);
+        for (GenerationResult result : results) {
+            assertThat(result.getRules()).isEqualTo(SQLCorgi.generateRules(result.getQuery(), schema));
+        }
+    }
+
+    /**
+     * Assert that a query for which no rules can be generated does not affect the other queries of a batch, even if
+     * they are handled by the same worker thread.
+     */
+    @Test
+    void testGenerateRulesBatchReportsErrorsPerQuery() {
+        List<String> queries = Arrays.asList(
+            "SELECT * FROM Movies WHERE year > 1",
+            INVALID_QUERY,
+            "SELECT * FROM Unknown WHERE x = 1",
+            "SELECT * FROM t WHERE a = 1"
+        );
+
+        List<GenerationResult> results = SQLCorgi.generateRulesBatch(queries, makeSchema(), 1);
+
+        assertThat(results).extracting(GenerationResult::isSuccessful).containsExactly(true, false, false, true);
+        assertThat(results.get(1).getError()).isInstanceOf(CannotBeParsedException.class);
+        assertThat(results.get(2).getError()).isInstanceOf(UnknownTableException.class);
+    }
+
+    /**
+     * Assert that a query that joins an unknown table does not affect the rules of the next query that is handled by
+     * the same worker thread.
+     */
+    @Test
+    void testGenerateRulesBatchDiscardsLayerOfUnknownTable() {
+        Schema schema = makeSchema();
+        String valid = "SELECT * FROM t WHERE a = 2 AND c > 1";
+        List<String> queries = Arrays.asList("SELECT * FROM Movies JOIN Unknown ON Movies.year = Unknown.x", valid);
+
+        List<GenerationResult> results = SQLCorgi.generateRulesBatch(queries, schema, 1);
+
+        assertThat(results.get(0).getError()).isInstanceOf(UnknownTableException.class);
+        assertThat(results.get(1).getRules()).isNotEmpty().isEqualTo(SQLCorgi.generateRules(valid, schema));
+    }
+
+    /**
+     * Assert that {@link SQLCorgi#generateRulesBatch} rejects a parallelism lower than one.
+     */
+    @Test
+    void testGenerateRulesBatchWithInvalidParallelism() {
+        List<String> queries = Arrays.asList("SELECT * FROM t");
+
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(
+            () -> SQLCorgi.generateRulesBatch(queries, null, 0)
+        );
+    }
+
+    /**
+     * Assert that {@link SQLCorgi#generateRules(String, Schema, com.github.sergdelft.sqlcorgi.RuleSink)} passes the
+     * same rules to the sink as are returned by {@link SQLCorgi#generateRules(String, Schema)}.
+     */
+    @Test
+    void testGenerateRulesToSinkMatchesSet() {
+        String query = "SELECT Movies.year, COUNT(t.a) FROM Movies LEFT JOIN t ON Movies.year = t.a "
+            + "WHERE Movies.year > 5 AND Movies.year IN (SELECT c FROM t WHERE c < 10) GROUP BY Movies.year";
+        Schema schema = makeSchema();
+        List<String> received = new ArrayList<>();
+
+        SQLCorgi.generateRules(query, schema, received::add);
+
+        assertThat(new HashSet<>(received)).isEqualTo(SQLCorgi.generateRules(query, schema));
+    }
+
+    /**
+     * Assert that rules cached by {@link SQLCorgi#generateRules(String, Schema, RuleCache)}, whose engine does not
+     * index the schema, are served to an engine that does, since both hash the schema the same way.
+     */
+    @Test
+    void testStaticCacheIsSharedWithIndexedEngine() {
+        String query = "SELECT * FROM Movies WHERE year > 1999 AND title IS NULL";
+        RuleCache cache = new RuleCache(Integer.MAX_VALUE);
+
+        Set<String> rules = SQLCorgi.generateRules(query, makeSchema(), cache);
+
+        assertThat(new CoverageEngine(makeSchema(), cache).generateRules(query)).isEqualTo(rules);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+    }
 }
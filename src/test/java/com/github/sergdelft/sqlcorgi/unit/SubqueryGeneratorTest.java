@@ -1,7 +1,6 @@
 package com.github.sergdelft.sqlcorgi.unit;
 
 import com.github.sergdelft.sqlcorgi.SubqueryGenerator;
-import com.github.sergdelft.sqlcorgi.exceptions.CannotBeParsedException;
 import com.github.sergdelft.sqlcorgi.schema.TableStructure;
 import com.github.sergdelft.sqlcorgi.visitors.SelectStatementVisitor;
 import net.sf.jsqlparser.expression.LongValue;
@@ -193,8 +192,9 @@ class SubqueryGeneratorTest {
     }
 
     /**
-     * Checks that {@link SubqueryGenerator#coverSubqueries(PlainSelect, TableStructure)} generates coverage targets if
-     * the WHERE or HAVING clause of the provided query contains an invalid subquery.
+     * Checks that {@link SubqueryGenerator#coverSubqueries(PlainSelect, TableStructure)} embeds the mutations of a
+     * subquery in the WHERE or HAVING clause as they are, without rendering and parsing them again, even if the
+     * subquery is not valid SQL.
      */
     @Test
     void testCoverQuerySelectOpInvalidSubquery() {
@@ -214,8 +214,9 @@ class SubqueryGeneratorTest {
         subSelect.setSelectBody(plainSelect);
         select.setWhere(subSelect);
 
-        assertThatThrownBy(() -> SubqueryGenerator.coverSubqueries(select, new TableStructure()))
-                .isInstanceOf(CannotBeParsedException.class);
+        Set<String> result = SubqueryGenerator.coverSubqueries(select, new TableStructure());
+
+        assertThat(result).isNotEmpty().allMatch(rule -> rule.contains("EXISTS (SELECT * WHERE"));
     }
 
     /**
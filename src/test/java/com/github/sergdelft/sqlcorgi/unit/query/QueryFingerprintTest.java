@@ -0,0 +1,67 @@
+package com.github.sergdelft.sqlcorgi.unit.query;
+
+import com.github.sergdelft.sqlcorgi.query.QueryFingerprint;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * This class tests the {@link QueryFingerprint} class.
+ */
+class QueryFingerprintTest {
+
+    /**
+     * Tests whether the key normalizes whitespace, comments and the case of keywords.
+     */
+    @Test
+    void testKeyNormalizesLayout() {
+        QueryFingerprint fingerprint = QueryFingerprint.of(
+            "select  title -- the title\n from Movies /* all */ where year in ( 1990 , 2000 ) and Director is null");
+
+        assertThat(fingerprint.getKey())
+            .isEqualTo("SELECT title FROM Movies WHERE year IN(1990,2000)AND Director IS NULL");
+    }
+
+    /**
+     * Tests whether quoted sections, identifiers, and words that may name a function keep their text.
+     */
+    @Test
+    void testKeyKeepsQuotedSectionsAndIdentifiers() {
+        QueryFingerprint fingerprint = QueryFingerprint.of("SELECT left(b, 1), \"from\"  FROM t WHERE b = 'a  and b'");
+
+        assertThat(fingerprint.getKey()).isEqualTo("SELECT left(b,1),\"from\" FROM t WHERE b = 'a  and b'");
+    }
+
+    /**
+     * Tests whether queries that only differ in their literals share their shape and hash, but not their key.
+     */
+    @Test
+    void testQueriesDifferingInLiteralsShareShape() {
+        QueryFingerprint first = QueryFingerprint.of("SELECT * FROM t WHERE a > 1000 AND b = 'it''s'");
+        QueryFingerprint second = QueryFingerprint.of("select * from t where a > 2.5E3 and b = 'x'");
+
+        assertThat(first.getShape()).isEqualTo("SELECT * FROM t WHERE a > ? AND b = ?");
+        assertThat(first.getHash()).isEqualTo(second.getHash());
+        assertThat(first).isNotEqualTo(second);
+    }
+
+    /**
+     * Tests whether digits that are part of an identifier are not mistaken for a literal.
+     */
+    @Test
+    void testDigitsInIdentifiersAreKept() {
+        String query = "SELECT t2.a1 FROM t2";
+
+        assertThat(QueryFingerprint.of(query).getShape()).isEqualTo(query);
+    }
+
+    /**
+     * Tests whether the key of a query with escape sequences is the query itself.
+     */
+    @Test
+    void testKeyOfQueryWithEscapesIsQuery() {
+        String query = "SELECT * FROM t WHERE b = 'a\\' and  b'";
+
+        assertThat(QueryFingerprint.of(query).getKey()).isEqualTo(query);
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.sergdelft.sqlcorgi.unit.query;
+
+import com.github.sergdelft.sqlcorgi.query.QueryTemplate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * This class tests the {@link QueryTemplate} class.
+ */
+class QueryTemplateTest {
+
+    /**
+     * Tests whether queries that only differ in their literals share the same template text.
+     */
+    @Test
+    void testQueriesDifferingInLiteralsShareTemplate() {
+        QueryTemplate first = QueryTemplate.lift("SELECT * FROM t WHERE balance > 1000 AND name = 'a'");
+        QueryTemplate second = QueryTemplate.lift("SELECT * FROM t WHERE balance > 2500 AND name = 'b'");
+
+        assertThat(first.getText()).isEqualTo(second.getText());
+        assertThat(first.getLiteralCount()).isEqualTo(2);
+    }
+
+    /**
+     * Tests whether binding a rule that was generated for the template text restores the original literals.
+     */
+    @Test
+    void testBindRestoresLiterals() {
+        String query = "SELECT * FROM t WHERE a BETWEEN 1.5 AND 20 AND b LIKE 'x''%'";
+        QueryTemplate template = QueryTemplate.lift(query);
+
+        assertThat(template.bind(template.getText())).isEqualTo(query);
+    }
+
+    /**
+     * Tests whether literals that are not written in their canonical form are left in the template text.
+     *
+     * @param query a query with a non-canonical numeric literal.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"SELECT * FROM t WHERE a = 007", "SELECT * FROM t WHERE a = 1.50",
+        "SELECT * FROM t WHERE a = 1e3"})
+    void testNonCanonicalLiteralsAreKept(String query) {
+        QueryTemplate template = QueryTemplate.lift(query);
+
+        assertThat(template.getText()).isEqualTo(query);
+    }
+
+    /**
+     * Tests whether queries for which a bound rule could differ from a directly generated rule are not lifted.
+     *
+     * @param query a query that cannot be lifted.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"SELECT * FROM t WHERE a = :__corgi_s0", "SELECT * FROM t WHERE a = 4000000000000000000",
+        "SELECT * FROM t WHERE b = 'a\\'b'",
+        "SELECT * FROM t WHERE EXISTS (SELECT * FROM t WHERE a = 1) OR EXISTS (SELECT * FROM t WHERE a = 1)"})
+    void testUnsafeQueriesAreNotLifted(String query) {
+        assertThat(QueryTemplate.lift(query)).isNull();
+    }
+}
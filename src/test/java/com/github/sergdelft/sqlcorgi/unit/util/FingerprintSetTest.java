@@ -0,0 +1,45 @@
+package com.github.sergdelft.sqlcorgi.unit.util;
+
+import com.github.sergdelft.sqlcorgi.util.FingerprintSet;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the {@link FingerprintSet}.
+ */
+class FingerprintSetTest {
+
+    private static final String RULE = "SELECT * FROM t WHERE a = 1";
+    private static final int TEXTS = 100_000;
+
+    /**
+     * Assert that a text is only added once, whether it is passed as a string or as a builder.
+     */
+    @Test
+    void testAddRecognizesDuplicates() {
+        FingerprintSet set = new FingerprintSet();
+
+        assertThat(set.add(RULE)).isTrue();
+        assertThat(set.add(new StringBuilder("SELECT * FROM t ").append("WHERE a = 1"))).isFalse();
+        assertThat(set.size()).isEqualTo(1);
+    }
+
+    /**
+     * Assert that many similar texts are all kept apart, also after the set has grown.
+     */
+    @Test
+    void testSimilarTextsAreDistinct() {
+        FingerprintSet set = new FingerprintSet();
+
+        int added = 0;
+        for (int i = 0; i < TEXTS; i++) {
+            if (set.add(RULE + i) && set.add(Integer.toString(i)) && !set.add(RULE + i)) {
+                added++;
+            }
+        }
+
+        assertThat(added).isEqualTo(TEXTS);
+        assertThat(set.size()).isEqualTo(TEXTS * 2);
+    }
+}
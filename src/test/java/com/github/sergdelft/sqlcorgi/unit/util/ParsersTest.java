@@ -0,0 +1,93 @@
+package com.github.sergdelft.sqlcorgi.unit.util;
+
+import com.github.sergdelft.sqlcorgi.util.Parsers;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Tests the {@link Parsers} utility class.
+ */
+class ParsersTest {
+
+    private static final String QUERY = "SELECT a, b FROM t WHERE a > 1 AND b LIKE 'x%'";
+    private static final int EXPIRED_AT_TOKEN = 3;
+
+    /**
+     * Verifies that {@link Parsers} cannot be instantiated.
+     *
+     * @throws NoSuchMethodException should not happen.
+     */
+    @Test
+    void testInstantiationForbidden() throws NoSuchMethodException {
+
+        Constructor<Parsers> constructor = Parsers.class.getDeclaredConstructor();
+        constructor.setAccessible(true);
+
+        Throwable thrown = catchThrowable(constructor::newInstance);
+
+        assertThat(thrown).hasRootCauseInstanceOf(UnsupportedOperationException.class);
+    }
+
+    /**
+     * Tests whether a reused parser produces the same statements as a freshly created one.
+     *
+     * @throws JSQLParserException should not happen.
+     */
+    @Test
+    void testReusedParserMatchesFreshParser() throws JSQLParserException {
+        Parsers.parse("SELECT * FROM Movies");
+
+        assertThat(Parsers.parse(QUERY).toString()).isEqualTo(CCJSqlParserUtil.parse(QUERY).toString());
+    }
+
+    /**
+     * Tests whether an input that cannot be parsed is reported as a {@link JSQLParserException}, and that parsing
+     * still works afterwards.
+     *
+     * @throws JSQLParserException should not happen.
+     */
+    @Test
+    void testParserRecoversFromFailure() throws JSQLParserException {
+        Throwable thrown = catchThrowable(() -> Parsers.parse("SELECT FROM WHERE ("));
+
+        assertThat(thrown).isInstanceOf(JSQLParserException.class);
+        assertThat(Parsers.parse(QUERY).toString()).isEqualTo(CCJSqlParserUtil.parse(QUERY).toString());
+    }
+
+    /**
+     * Tests whether a parse is abandoned as soon as its condition expires, and that parsing still works afterwards.
+     *
+     * @throws JSQLParserException should not happen.
+     * @throws TimeoutException should not happen.
+     */
+    @Test
+    void testExpiredParseIsAbandoned() throws JSQLParserException, TimeoutException {
+        AtomicInteger tokens = new AtomicInteger();
+        BooleanSupplier expired = () -> tokens.incrementAndGet() >= EXPIRED_AT_TOKEN;
+
+        Throwable thrown = catchThrowable(() -> Parsers.parse(QUERY, expired));
+
+        assertThat(thrown).isInstanceOf(TimeoutException.class);
+        assertThat(tokens).hasValue(EXPIRED_AT_TOKEN);
+        assertThat(Parsers.parse(QUERY, () -> false).toString()).isEqualTo(CCJSqlParserUtil.parse(QUERY).toString());
+    }
+
+    /**
+     * Tests whether {@link Parsers#parseStatements(String)} parses every statement of a script.
+     *
+     * @throws JSQLParserException should not happen.
+     */
+    @Test
+    void testParseStatements() throws JSQLParserException {
+        assertThat(Parsers.parseStatements(QUERY + "; SELECT * FROM Movies;").getStatements()).hasSize(2);
+    }
+}
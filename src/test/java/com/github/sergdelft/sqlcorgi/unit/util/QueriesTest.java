@@ -0,0 +1,97 @@
+package com.github.sergdelft.sqlcorgi.unit.util;
+
+import com.github.sergdelft.sqlcorgi.exceptions.UnsupportedInputException;
+import com.github.sergdelft.sqlcorgi.util.Queries;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Constructor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Tests the {@link Queries} utility class.
+ */
+class QueriesTest {
+
+    /**
+     * Verifies that {@link Queries} cannot be instantiated.
+     *
+     * @throws NoSuchMethodException should not happen.
+     */
+    @Test
+    void testInstantiationForbidden() throws NoSuchMethodException {
+
+        Constructor<Queries> constructor = Queries.class.getDeclaredConstructor();
+        constructor.setAccessible(true);
+
+        Throwable thrown = catchThrowable(constructor::newInstance);
+
+        assertThat(thrown).hasRootCauseInstanceOf(UnsupportedOperationException.class);
+    }
+
+    /**
+     * Tests whether {@link Queries#normalize(String)} collapses whitespace outside of quoted sections.
+     */
+    @Test
+    void testNormalizeCollapsesWhitespace() {
+        assertThat(Queries.normalize("  SELECT *\n\tFROM   t  WHERE a = 'x   y' AND [my  col] = 1 "))
+            .isEqualTo("SELECT * FROM t WHERE a = 'x   y' AND [my  col] = 1");
+    }
+
+    /**
+     * Tests whether {@link Queries#normalize(String)} keeps the line break that terminates a line comment.
+     */
+    @Test
+    void testNormalizeKeepsLineCommentTerminator() {
+        assertThat(Queries.normalize("SELECT * -- all  columns\n  FROM t"))
+            .isEqualTo("SELECT * -- all  columns\n FROM t");
+    }
+
+    /**
+     * Tests whether {@link Queries#split(String)} only splits at semicolons outside of quoted sections and comments.
+     */
+    @Test
+    void testSplitIgnoresQuotedSemicolons() {
+        assertThat(Queries.split("SELECT ';' FROM t; -- a; b\n SELECT 1 ;; "))
+            .containsExactly("SELECT ';' FROM t", "-- a; b\n SELECT 1");
+    }
+
+    /**
+     * Tests whether {@link Queries#nestingDepth(String)} ignores parentheses in quoted sections.
+     */
+    @Test
+    void testNestingDepthIgnoresQuotedParentheses() {
+        assertThat(Queries.nestingDepth("SELECT (a) FROM t WHERE b IN ((1), ('(((')) /* ((( */")).isEqualTo(2);
+    }
+
+    /**
+     * Tests whether {@link Queries#numberParameters(String)} only numbers the parameters outside of quoted sections.
+     */
+    @Test
+    void testNumberParameters() {
+        assertThat(Queries.numberParameters("SELECT '?' FROM t WHERE a = ? AND b IN (?, :c) -- ?\n AND d = ?"))
+            .isEqualTo("SELECT '?' FROM t WHERE a = ?1 AND b IN (?2, :c) -- ?\n AND d = ?3");
+    }
+
+    /**
+     * Tests whether {@link Queries#numberParameters(String)} leaves queries with indexed parameters untouched.
+     */
+    @Test
+    void testNumberParametersKeepsIndices() {
+        String query = "SELECT * FROM t WHERE a = ?2 AND b = ?1";
+
+        assertThat(Queries.numberParameters(query)).isEqualTo(query);
+    }
+
+    /**
+     * Tests whether {@link Queries#numberParameters(String)} rejects queries that mix parameters with and without an
+     * index.
+     */
+    @Test
+    void testNumberParametersRejectsMixedIndices() {
+        assertThatExceptionOfType(UnsupportedInputException.class)
+            .isThrownBy(() -> Queries.numberParameters("SELECT * FROM t WHERE a = ? AND c = ?1"));
+    }
+}
@@ -34,6 +34,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 class ExpressionClonerTest {
 
     private static final String STRING_ABC = "abc";
+    private static final int DEEP_CHAIN_LENGTH = 100_000;
 
     /**
      * Tests whether {@link ExpressionCloner#copy(Expression)} makes a deep copy of a {@link NotExpression}.
@@ -681,6 +682,53 @@ class ExpressionClonerTest {
         assertCopyEquals(original, copy);
     }
 
+    /**
+     * Tests whether consecutive calls to {@link ExpressionCloner#copy(Expression)}, which reuse the cloners of the
+     * current thread, each return their own copy.
+     */
+    @Test
+    void testConsecutiveCopiesAreIndependent() {
+
+        AndExpression original = new AndExpression(new Column(STRING_ABC), new NullValue());
+
+        AndExpression first = (AndExpression) ExpressionCloner.copy(original);
+        AndExpression second = (AndExpression) ExpressionCloner.copy(original);
+
+        assertCopyEquals(original, second);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getLeftExpression()).isNotSameAs(first.getLeftExpression());
+    }
+
+    /**
+     * Tests whether {@link ExpressionCloner#copy(Expression)} copies a chain of {@code OR} terms that is far too deep
+     * to be copied recursively.
+     */
+    @Test
+    void testCopyDeepOrChain() {
+
+        Expression original = new Column(STRING_ABC);
+        for (int i = 0; i < DEEP_CHAIN_LENGTH; i++) {
+            original = new OrExpression(original, new LongValue(i));
+        }
+
+        Expression copy = ExpressionCloner.copy(original);
+
+        int length = 0;
+        while (copy instanceof OrExpression) {
+            OrExpression originalOr = (OrExpression) original;
+            OrExpression copyOr = (OrExpression) copy;
+            assertThat(copyOr).isNotSameAs(originalOr);
+            assertThat(((LongValue) copyOr.getRightExpression()).getValue())
+                .isEqualTo(((LongValue) originalOr.getRightExpression()).getValue());
+
+            original = originalOr.getLeftExpression();
+            copy = copyOr.getLeftExpression();
+            length++;
+        }
+
+        assertThat(length).isEqualTo(DEEP_CHAIN_LENGTH);
+    }
+
     /**
      * Tests whether {@code copy} is equivalent to {@code original}.
      *
@@ -0,0 +1,90 @@
+package com.github.sergdelft.sqlcorgi.unit.util.cloner;
+
+import com.github.sergdelft.sqlcorgi.util.cloner.ExpressionCloner;
+import com.github.sergdelft.sqlcorgi.util.cloner.LeafInterner;
+import net.sf.jsqlparser.expression.Alias;
+import net.sf.jsqlparser.expression.DoubleValue;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the {@link LeafInterner} class.
+ */
+class LeafInternerTest {
+
+    private static final String COLUMN_NAME = "a";
+    private static final String ONE = "1";
+    private static final String TABLE_NAME = "t";
+    private static final int DISTINCT_LEAVES = 3;
+
+    /**
+     * Tests whether equal leaves are interned to the same instance, and leaves of different classes are not.
+     */
+    @Test
+    void testEqualLeavesAreShared() {
+
+        LeafInterner leaves = new LeafInterner();
+        Column column = new Column(new Table(TABLE_NAME), COLUMN_NAME);
+
+        assertThat(leaves.intern(new Column(new Table(TABLE_NAME), COLUMN_NAME))).isSameAs(leaves.intern(column));
+        assertThat(leaves.intern(new LongValue(ONE))).isNotSameAs(leaves.intern(new DoubleValue(ONE)));
+        assertThat(leaves.size()).isEqualTo(DISTINCT_LEAVES);
+    }
+
+    /**
+     * Tests whether leaves that differ in a field that is part of their text are not shared, such as the table of a
+     * column or the original text of a number.
+     */
+    @Test
+    void testLeavesWithDifferentTextAreNotShared() {
+
+        LeafInterner leaves = new LeafInterner();
+        Column column = new Column(new Table(TABLE_NAME), COLUMN_NAME);
+        Table aliased = new Table(TABLE_NAME);
+        aliased.setAlias(new Alias("u"));
+
+        assertThat(leaves.intern(new Column(COLUMN_NAME))).isNotSameAs(leaves.intern(column));
+        assertThat(leaves.intern(new Column(aliased, COLUMN_NAME))).isNotSameAs(column);
+        assertThat(leaves.intern(new DoubleValue("1.0"))).isNotSameAs(leaves.intern(new DoubleValue("1.00")));
+    }
+
+    /**
+     * Tests whether expressions that are not leaves are never interned.
+     */
+    @Test
+    void testNonLeavesAreNotInterned() {
+
+        LeafInterner leaves = new LeafInterner();
+        EqualsTo equalsTo = new EqualsTo();
+        equalsTo.setLeftExpression(new Column(COLUMN_NAME));
+        equalsTo.setRightExpression(new LongValue(ONE));
+
+        assertThat(leaves.intern(equalsTo)).isSameAs(equalsTo);
+        assertThat(leaves.size()).isZero();
+    }
+
+    /**
+     * Tests whether {@link ExpressionCloner#copy(net.sf.jsqlparser.expression.Expression, LeafInterner)} shares the
+     * leaves of its copies, but copies all other nodes.
+     */
+    @Test
+    void testCopySharesLeaves() {
+
+        LeafInterner leaves = new LeafInterner();
+        EqualsTo original = new EqualsTo();
+        original.setLeftExpression(new Column(COLUMN_NAME));
+        original.setRightExpression(new LongValue(ONE));
+
+        EqualsTo first = (EqualsTo) ExpressionCloner.copy(original, leaves);
+        EqualsTo second = (EqualsTo) ExpressionCloner.copy(original, leaves);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getLeftExpression()).isSameAs(first.getLeftExpression());
+        assertThat(second.getRightExpression()).isSameAs(first.getRightExpression());
+    }
+}
@@ -5,6 +5,8 @@ import com.google.common.primitives.Booleans;
 import net.sf.jsqlparser.expression.*;
 import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
 import net.sf.jsqlparser.expression.operators.relational.MultiExpressionList;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.parser.SimpleNode;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.schema.Table;
@@ -954,6 +956,29 @@ class SelectClonerTest {
         assertThat(copy.getAlias()).isNotSameAs(alias);
     }
 
+    /**
+     * Tests whether {@link SelectCloner#copyPath(PlainSelect)} only copies the WHERE and HAVING clauses of a
+     * {@link PlainSelect}, and shares all other clauses with the original.
+     *
+     * @throws JSQLParserException if the query cannot be parsed.
+     */
+    @Test
+    void testCopyPathSharesUntouchedClauses() throws JSQLParserException {
+
+        PlainSelect original = (PlainSelect) ((Select) CCJSqlParserUtil.parse(
+            "SELECT a, COUNT(b) FROM t INNER JOIN u ON t.a = u.a WHERE a > 1 GROUP BY a HAVING COUNT(b) > 2 ORDER BY a"
+        )).getSelectBody();
+
+        PlainSelect copy = SelectCloner.copyPath(original);
+        assertCopyEquals(original, copy);
+
+        assertThat(copy.getWhere()).isNotSameAs(original.getWhere());
+        assertThat(copy.getHaving()).isNotSameAs(original.getHaving());
+        assertThat(copy.getSelectItems()).isSameAs(original.getSelectItems());
+        assertThat(copy.getJoins()).isSameAs(original.getJoins());
+        assertThat(copy.getGroupBy()).isSameAs(original.getGroupBy());
+    }
+
     /**
      * Tests whether {@code copy} is equivalent to {@code original}.
      *
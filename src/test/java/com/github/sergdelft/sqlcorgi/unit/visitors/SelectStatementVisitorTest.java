@@ -1,11 +1,26 @@
 package com.github.sergdelft.sqlcorgi.unit.visitors;
 
+import com.github.sergdelft.sqlcorgi.GenerationContext;
+import com.github.sergdelft.sqlcorgi.Rule;
+import com.github.sergdelft.sqlcorgi.RuleSink;
+import com.github.sergdelft.sqlcorgi.schema.TableStructure;
+import com.github.sergdelft.sqlcorgi.schema.UnknownColumnException;
+import com.github.sergdelft.sqlcorgi.schema.UnknownTableException;
 import com.github.sergdelft.sqlcorgi.visitors.SelectStatementVisitor;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.select.Select;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import static com.github.sergdelft.sqlcorgi.AssertUtils.makeSchema;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 /**
@@ -22,7 +37,7 @@ public class SelectStatementVisitorTest {
     @Test
     public void testConstructorWithNullSetThrowsException() {
         assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(
-            () -> new SelectStatementVisitor(null, null)
+            () -> new SelectStatementVisitor(null, (Set<String>) null)
         );
     }
 
@@ -38,4 +53,55 @@ public class SelectStatementVisitorTest {
             () -> new SelectStatementVisitor(null, nonEmptySet)
         ).withMessage(EXCEPTION_MESSAGE);
     }
+
+    /**
+     * Assert that the proper exception is thrown when the constructor is provided a null rule sink.
+     */
+    @Test
+    public void testConstructorWithNullSinkThrowsException() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(
+            () -> new SelectStatementVisitor(new TableStructure(), (RuleSink) null)
+        ).withMessage("A SelectStatementVisitor requires a non-null rule sink.");
+    }
+
+    /**
+     * Assert that a visitor stops generating rules as soon as its run is cancelled.
+     *
+     * @throws JSQLParserException if the query cannot be parsed.
+     */
+    @Test
+    public void testCancelledRunStopsGeneratingRules() throws JSQLParserException {
+        Select select = (Select) CCJSqlParserUtil.parse("SELECT * FROM t WHERE a = 1 AND b = 2 GROUP BY c");
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<Rule> rules = new ArrayList<>();
+
+        SelectStatementVisitor visitor = new SelectStatementVisitor(new TableStructure(), rule -> {
+            rules.add(rule);
+            cancelled.set(true);
+        }, new GenerationContext(cancelled::get));
+
+        assertThatExceptionOfType(CancellationException.class).isThrownBy(
+            () -> select.getSelectBody().accept(visitor)
+        );
+        assertThat(rules).hasSize(1);
+    }
+
+    /**
+     * Assert that a query that joins an unknown table leaves no layer behind in a reused table structure, so that the
+     * columns of the next query are only resolved against the tables of that query.
+     *
+     * @throws JSQLParserException if a query cannot be parsed.
+     */
+    @Test
+    public void testUnknownTableLeavesNoLayerBehind() throws JSQLParserException {
+        TableStructure tableStructure = new TableStructure();
+        tableStructure.setSchema(makeSchema());
+        Select unknownJoin = (Select) CCJSqlParserUtil.parse("SELECT * FROM Movies JOIN u ON Movies.year = u.x");
+        Select unknownColumn = (Select) CCJSqlParserUtil.parse("SELECT * FROM t WHERE year > 1");
+
+        assertThatExceptionOfType(UnknownTableException.class).isThrownBy(() -> unknownJoin.getSelectBody().accept(
+            new SelectStatementVisitor(tableStructure, new HashSet<>())));
+        assertThatExceptionOfType(UnknownColumnException.class).isThrownBy(() -> unknownColumn.getSelectBody().accept(
+            new SelectStatementVisitor(tableStructure, new HashSet<>())));
+    }
 }